@@ -0,0 +1,381 @@
+package nikochan2k.citywalker.tiles3d;
+
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import nikochan2k.citywalker.Item;
+
+class B3dmEncoder {
+
+	private static final double WGS84_A = 6378137.0;
+	private static final double WGS84_E2 = 6.69437999014e-3;
+	private static final int ARRAY_BUFFER = 34962;
+	private static final int ELEMENT_ARRAY_BUFFER = 34963;
+	private static final int FLOAT = 5126;
+	private static final int UNSIGNED_INT = 5125;
+
+	static void toEcef(double lon, double lat, double h, double[] ecef) {
+		double lambda = Math.toRadians(lon);
+		double phi = Math.toRadians(lat);
+		double sinPhi = Math.sin(phi);
+		double cosPhi = Math.cos(phi);
+		double n = WGS84_A / Math.sqrt(1 - WGS84_E2 * sinPhi * sinPhi);
+		ecef[0] = (n + h) * cosPhi * Math.cos(lambda);
+		ecef[1] = (n + h) * cosPhi * Math.sin(lambda);
+		ecef[2] = (n * (1 - WGS84_E2) + h) * sinPhi;
+	}
+
+	private static byte[] pad(String json, int offset, int alignment) {
+		StringBuilder sb = new StringBuilder(json);
+		int length = json.getBytes(StandardCharsets.UTF_8).length;
+		while ((offset + length) % alignment != 0) {
+			sb.append(' ');
+			length++;
+		}
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private float[] batchIds = new float[1024];
+	private final double[] bounds = new double[4];
+	private final double[] ecef = new double[3];
+	private final double geoidHeight;
+	private int indexCount;
+	private int[] indexes = new int[1024];
+	private float[] normals = new float[3072];
+	private float[] positions = new float[3072];
+	private final double[] region = new double[6];
+	private final double[] rtc = new double[3];
+	private int vertexCount;
+
+	B3dmEncoder() {
+		this(0);
+	}
+
+	// heights are orthometric (JGD2011), ECEF needs ellipsoidal ones
+	B3dmEncoder(double geoidHeight) {
+		this.geoidHeight = geoidHeight;
+	}
+
+	private int addVertex(double lon, double lat, double h, double nx, double ny, double nz, int batchId) {
+		if (batchIds.length == vertexCount) {
+			positions = Arrays.copyOf(positions, positions.length * 2);
+			normals = Arrays.copyOf(normals, normals.length * 2);
+			batchIds = Arrays.copyOf(batchIds, batchIds.length * 2);
+		}
+		toEcef(lon, lat, h, ecef);
+		// glTF is y-up, 3D Tiles rotates it back to z-up
+		int i = vertexCount * 3;
+		positions[i] = (float) (ecef[0] - rtc[0]);
+		positions[i + 1] = (float) (ecef[2] - rtc[2]);
+		positions[i + 2] = (float) -(ecef[1] - rtc[1]);
+		normals[i] = (float) nx;
+		normals[i + 1] = (float) nz;
+		normals[i + 2] = (float) -ny;
+		batchIds[vertexCount] = batchId;
+		return vertexCount++;
+	}
+
+	private void addTriangle(int a, int b, int c) {
+		if (indexes.length < indexCount + 3) {
+			indexes = Arrays.copyOf(indexes, indexes.length * 2);
+		}
+		indexes[indexCount++] = a;
+		indexes[indexCount++] = b;
+		indexes[indexCount++] = c;
+	}
+
+	// returns false when the footprint is degenerate
+	private boolean addBuilding(Item item, int batchId) {
+		double[] coords = item.getCoordinates();
+		int n = 0;
+		double[] lons = new double[item.getVertexCount()];
+		double[] lats = new double[item.getVertexCount()];
+		double base = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < item.getVertexCount(); i++) {
+			double lon = coords[i * 3];
+			double lat = coords[i * 3 + 1];
+			if (0 < n && lons[n - 1] == lon && lats[n - 1] == lat) {
+				continue;
+			}
+			lons[n] = lon;
+			lats[n] = lat;
+			base = Math.min(base, coords[i * 3 + 2]);
+			n++;
+		}
+		if (1 < n && lons[0] == lons[n - 1] && lats[0] == lats[n - 1]) {
+			n--;
+		}
+		if (n < 3) {
+			return false;
+		}
+		base += geoidHeight;
+
+		double lat0 = Math.toRadians(lats[0]);
+		double[] xs = new double[n];
+		double[] ys = new double[n];
+		double area = 0;
+		for (int i = 0; i < n; i++) {
+			xs[i] = Math.toRadians(lons[i] - lons[0]) * Math.cos(lat0) * WGS84_A;
+			ys[i] = Math.toRadians(lats[i] - lats[0]) * WGS84_A;
+		}
+		for (int i = 0; i < n; i++) {
+			int j = (i + 1) % n;
+			area += xs[i] * ys[j] - xs[j] * ys[i];
+		}
+		if (area == 0) {
+			return false;
+		}
+		if (area < 0) {
+			reverse(lons, n);
+			reverse(lats, n);
+			reverse(xs, n);
+			reverse(ys, n);
+		}
+
+		Serializable measuredHeight = item.props.get("measuredHeight");
+		double height = measuredHeight instanceof Number ? ((Number) measuredHeight).doubleValue() : 0;
+		double top = base + Math.max(0, height);
+		double lambda = Math.toRadians(lons[0]);
+		double upX = Math.cos(lat0) * Math.cos(lambda);
+		double upY = Math.cos(lat0) * Math.sin(lambda);
+		double upZ = Math.sin(lat0);
+
+		int[] triangles = new int[(n - 2) * 3];
+		int count = Triangulator.triangulate(xs, ys, n, triangles);
+		int first = vertexCount;
+		for (int i = 0; i < n; i++) {
+			addVertex(lons[i], lats[i], top, upX, upY, upZ, batchId);
+		}
+		for (int t = 0; t < count; t++) {
+			addTriangle(first + triangles[t * 3], first + triangles[t * 3 + 1], first + triangles[t * 3 + 2]);
+		}
+
+		updateRegion(lons, lats, n, base, top);
+		if (top <= base) {
+			return true;
+		}
+
+		double[] p0 = new double[3];
+		double[] p1 = new double[3];
+		for (int i = 0; i < n; i++) {
+			int j = (i + 1) % n;
+			toEcef(lons[i], lats[i], base, p0);
+			toEcef(lons[j], lats[j], base, p1);
+			double ex = p1[0] - p0[0];
+			double ey = p1[1] - p0[1];
+			double ez = p1[2] - p0[2];
+			// outward normal of a counter-clockwise ring
+			double nx = ey * upZ - ez * upY;
+			double ny = ez * upX - ex * upZ;
+			double nz = ex * upY - ey * upX;
+			double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+			if (length == 0) {
+				continue;
+			}
+			nx /= length;
+			ny /= length;
+			nz /= length;
+			int a = addVertex(lons[i], lats[i], base, nx, ny, nz, batchId);
+			int b = addVertex(lons[j], lats[j], base, nx, ny, nz, batchId);
+			int c = addVertex(lons[j], lats[j], top, nx, ny, nz, batchId);
+			int d = addVertex(lons[i], lats[i], top, nx, ny, nz, batchId);
+			addTriangle(a, b, c);
+			addTriangle(a, c, d);
+		}
+		return true;
+	}
+
+	private String createBatchTable(List<Item> items) {
+		Map<String, Serializable[]> columns = new LinkedHashMap<>();
+		Serializable[] ids = new Serializable[items.size()];
+		columns.put("id", ids);
+		for (int i = 0; i < items.size(); i++) {
+			Item item = items.get(i);
+			ids[i] = item.id;
+			for (Entry<String, Serializable> entry : item.props.entrySet()) {
+				if (entry.getValue() == null) {
+					continue;
+				}
+				Serializable[] column = columns.computeIfAbsent(entry.getKey(), k -> new Serializable[items.size()]);
+				column[i] = entry.getValue();
+			}
+		}
+		StringBuilder sb = new StringBuilder(4096);
+		sb.append('{');
+		boolean first = true;
+		for (Entry<String, Serializable[]> entry : columns.entrySet()) {
+			if (!first) {
+				sb.append(',');
+			}
+			first = false;
+			Json.appendString(sb, entry.getKey());
+			sb.append(":[");
+			Serializable[] values = entry.getValue();
+			for (int i = 0; i < values.length; i++) {
+				if (i != 0) {
+					sb.append(',');
+				}
+				Json.appendValue(sb, values[i]);
+			}
+			sb.append(']');
+		}
+		sb.append('}');
+		return sb.toString();
+	}
+
+	private byte[] createGlb() {
+		int positionLength = vertexCount * 12;
+		int normalLength = vertexCount * 12;
+		int batchIdLength = vertexCount * 4;
+		int indexLength = indexCount * 4;
+		int binLength = positionLength + normalLength + batchIdLength + indexLength;
+
+		float[] min = { Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE };
+		float[] max = { -Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE };
+		for (int i = 0; i < vertexCount * 3; i++) {
+			min[i % 3] = Math.min(min[i % 3], positions[i]);
+			max[i % 3] = Math.max(max[i % 3], positions[i]);
+		}
+
+		StringBuilder sb = new StringBuilder(2048);
+		sb.append("{\"asset\":{\"version\":\"2.0\",\"generator\":\"city-walker\"},\"scene\":0,");
+		sb.append("\"scenes\":[{\"nodes\":[0]}],\"nodes\":[{\"mesh\":0}],");
+		sb.append("\"meshes\":[{\"primitives\":[{\"attributes\":{\"POSITION\":0,\"NORMAL\":1,\"_BATCHID\":2},");
+		sb.append("\"indices\":3,\"material\":0,\"mode\":4}]}],");
+		sb.append("\"materials\":[{\"pbrMetallicRoughness\":{\"baseColorFactor\":[1,1,1,1],");
+		sb.append("\"metallicFactor\":0,\"roughnessFactor\":1}}],");
+		sb.append("\"buffers\":[{\"byteLength\":").append(binLength).append("}],\"bufferViews\":[");
+		int offset = 0;
+		int[][] views = { { positionLength, ARRAY_BUFFER }, { normalLength, ARRAY_BUFFER },
+				{ batchIdLength, ARRAY_BUFFER }, { indexLength, ELEMENT_ARRAY_BUFFER } };
+		for (int i = 0; i < views.length; i++) {
+			if (i != 0) {
+				sb.append(',');
+			}
+			sb.append("{\"buffer\":0,\"byteOffset\":").append(offset).append(",\"byteLength\":").append(views[i][0])
+					.append(",\"target\":").append(views[i][1]).append('}');
+			offset += views[i][0];
+		}
+		sb.append("],\"accessors\":[");
+		sb.append("{\"bufferView\":0,\"componentType\":").append(FLOAT).append(",\"count\":").append(vertexCount);
+		sb.append(",\"type\":\"VEC3\",\"min\":[").append(min[0]).append(',').append(min[1]).append(',')
+				.append(min[2]).append("],\"max\":[").append(max[0]).append(',').append(max[1]).append(',')
+				.append(max[2]).append("]},");
+		sb.append("{\"bufferView\":1,\"componentType\":").append(FLOAT).append(",\"count\":").append(vertexCount)
+				.append(",\"type\":\"VEC3\"},");
+		sb.append("{\"bufferView\":2,\"componentType\":").append(FLOAT).append(",\"count\":").append(vertexCount)
+				.append(",\"type\":\"SCALAR\"},");
+		sb.append("{\"bufferView\":3,\"componentType\":").append(UNSIGNED_INT).append(",\"count\":")
+				.append(indexCount).append(",\"type\":\"SCALAR\"}]}");
+
+		// binLength is a multiple of 4, so padding the JSON chunk keeps the whole glb 8-byte aligned
+		byte[] json = pad(sb.toString(), 12 + 8 + 8 + binLength, 8);
+		int total = 12 + 8 + json.length + 8 + binLength;
+		ByteBuffer bb = ByteBuffer.allocate(total).order(ByteOrder.LITTLE_ENDIAN);
+		bb.putInt(0x46546C67);
+		bb.putInt(2);
+		bb.putInt(total);
+		bb.putInt(json.length);
+		bb.putInt(0x4E4F534A);
+		bb.put(json);
+		bb.putInt(binLength);
+		bb.putInt(0x004E4942);
+		for (int i = 0; i < vertexCount * 3; i++) {
+			bb.putFloat(positions[i]);
+		}
+		for (int i = 0; i < vertexCount * 3; i++) {
+			bb.putFloat(normals[i]);
+		}
+		for (int i = 0; i < vertexCount; i++) {
+			bb.putFloat(batchIds[i]);
+		}
+		for (int i = 0; i < indexCount; i++) {
+			bb.putInt(indexes[i]);
+		}
+		return bb.array();
+	}
+
+	byte[] encode(List<Item> items) {
+		vertexCount = 0;
+		indexCount = 0;
+		region[0] = Double.POSITIVE_INFINITY;
+		region[1] = Double.POSITIVE_INFINITY;
+		region[2] = Double.NEGATIVE_INFINITY;
+		region[3] = Double.NEGATIVE_INFINITY;
+		region[4] = Double.POSITIVE_INFINITY;
+		region[5] = Double.NEGATIVE_INFINITY;
+
+		bounds[0] = Double.POSITIVE_INFINITY;
+		bounds[1] = Double.POSITIVE_INFINITY;
+		bounds[2] = Double.NEGATIVE_INFINITY;
+		bounds[3] = Double.NEGATIVE_INFINITY;
+		for (Item item : items) {
+			item.expandBounds(bounds);
+		}
+		toEcef((bounds[0] + bounds[2]) / 2, (bounds[1] + bounds[3]) / 2, 0, rtc);
+
+		List<Item> batched = new ArrayList<>(items.size());
+		for (Item item : items) {
+			if (addBuilding(item, batched.size())) {
+				batched.add(item);
+			}
+		}
+		if (batched.isEmpty()) {
+			return null;
+		}
+
+		StringBuilder sb = new StringBuilder(128);
+		sb.append("{\"BATCH_LENGTH\":").append(batched.size()).append(",\"RTC_CENTER\":[").append(rtc[0])
+				.append(',').append(rtc[1]).append(',').append(rtc[2]).append("]}");
+		byte[] featureTable = pad(sb.toString(), 28, 8);
+		byte[] batchTable = pad(createBatchTable(batched), 28 + featureTable.length, 8);
+		byte[] glb = createGlb();
+
+		int total = 28 + featureTable.length + batchTable.length + glb.length;
+		ByteBuffer bb = ByteBuffer.allocate(total).order(ByteOrder.LITTLE_ENDIAN);
+		bb.put("b3dm".getBytes(StandardCharsets.US_ASCII));
+		bb.putInt(1);
+		bb.putInt(total);
+		bb.putInt(featureTable.length);
+		bb.putInt(0);
+		bb.putInt(batchTable.length);
+		bb.putInt(0);
+		bb.put(featureTable);
+		bb.put(batchTable);
+		bb.put(glb);
+		return bb.array();
+	}
+
+	// west, south, east, north in radians, then minimum and maximum height
+	double[] getRegion() {
+		return region;
+	}
+
+	private void reverse(double[] values, int n) {
+		for (int i = 0, j = n - 1; i < j; i++, j--) {
+			double t = values[i];
+			values[i] = values[j];
+			values[j] = t;
+		}
+	}
+
+	private void updateRegion(double[] lons, double[] lats, int n, double base, double top) {
+		for (int i = 0; i < n; i++) {
+			region[0] = Math.min(region[0], Math.toRadians(lons[i]));
+			region[1] = Math.min(region[1], Math.toRadians(lats[i]));
+			region[2] = Math.max(region[2], Math.toRadians(lons[i]));
+			region[3] = Math.max(region[3], Math.toRadians(lats[i]));
+		}
+		region[4] = Math.min(region[4], base);
+		region[5] = Math.max(region[5], top);
+	}
+
+}
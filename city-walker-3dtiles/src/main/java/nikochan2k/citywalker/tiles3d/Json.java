@@ -0,0 +1,66 @@
+package nikochan2k.citywalker.tiles3d;
+
+import java.io.Serializable;
+
+final class Json {
+
+	static void appendNumber(StringBuilder sb, double value) {
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			sb.append("null");
+		} else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			sb.append((long) value);
+		} else {
+			sb.append(value);
+		}
+	}
+
+	static void appendString(StringBuilder sb, String value) {
+		sb.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					sb.append(String.format("\\u%04x", (int) c));
+				} else {
+					sb.append(c);
+				}
+				break;
+			}
+		}
+		sb.append('"');
+	}
+
+	static void appendValue(StringBuilder sb, Serializable value) {
+		if (value == null) {
+			sb.append("null");
+		} else if (value instanceof Integer || value instanceof Long) {
+			sb.append(value);
+		} else if (value instanceof Number) {
+			appendNumber(sb, ((Number) value).doubleValue());
+		} else if (value instanceof Boolean) {
+			sb.append(value);
+		} else {
+			appendString(sb, value.toString());
+		}
+	}
+
+	private Json() {
+	}
+
+}
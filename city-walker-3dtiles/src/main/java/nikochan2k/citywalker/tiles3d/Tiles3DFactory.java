@@ -0,0 +1,77 @@
+package nikochan2k.citywalker.tiles3d;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.logging.Logger;
+
+import nikochan2k.citywalker.Factory;
+import nikochan2k.citywalker.Processor;
+
+public class Tiles3DFactory extends Factory {
+
+	static final String OUTPUT_SRS = "EPSG:4326";
+	private static final Logger LOGGER = Logger.getLogger(Tiles3DFactory.class.getName());
+
+	private double geoidHeight;
+	private int maxFeatures = 500;
+	private Tileset tileset;
+
+	@Override
+	public synchronized Processor createProcessor(File input, String srs) {
+		if (tileset == null) {
+			File dir = getOutputDir();
+			if (dir == null) {
+				dir = new File(input.getAbsoluteFile().getParentFile(), "3dtiles");
+			}
+			try {
+				tileset = new Tileset(dir, maxFeatures, geoidHeight);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return new Tiles3DProcessor(tileset);
+	}
+
+	@Override
+	public synchronized void finish() throws IOException {
+		if (tileset == null) {
+			return;
+		}
+		try {
+			int tiles = tileset.write();
+			LOGGER.info(String.format("Wrote %d tile(s)", tiles));
+		} finally {
+			tileset.close();
+			tileset = null;
+		}
+	}
+
+	public double getGeoidHeight() {
+		return geoidHeight;
+	}
+
+	public int getMaxFeatures() {
+		return maxFeatures;
+	}
+
+	@Override
+	public String getOutputSRS() {
+		// tiles are placed on the globe from longitude, latitude and height
+		return OUTPUT_SRS;
+	}
+
+	@Override
+	public String getTypeName() {
+		return "3dtiles";
+	}
+
+	public void setGeoidHeight(double geoidHeight) {
+		this.geoidHeight = geoidHeight;
+	}
+
+	public void setMaxFeatures(int maxFeatures) {
+		this.maxFeatures = maxFeatures;
+	}
+
+}
@@ -0,0 +1,32 @@
+package nikochan2k.citywalker.tiles3d;
+
+import java.io.IOException;
+import java.util.logging.Logger;
+
+import nikochan2k.citywalker.Item;
+import nikochan2k.citywalker.Processor;
+
+public class Tiles3DProcessor extends Processor {
+
+	private static final Logger LOGGER = Logger.getLogger(Tiles3DProcessor.class.getName());
+
+	private final Tileset tileset;
+
+	Tiles3DProcessor(Tileset tileset) {
+		this.tileset = tileset;
+	}
+
+	@Override
+	protected void finish() {
+	}
+
+	@Override
+	protected void process(Item item) {
+		try {
+			tileset.add(item);
+		} catch (IOException e) {
+			LOGGER.warning(e.toString());
+		}
+	}
+
+}
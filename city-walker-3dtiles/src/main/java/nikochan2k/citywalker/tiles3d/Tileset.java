@@ -0,0 +1,222 @@
+package nikochan2k.citywalker.tiles3d;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import nikochan2k.citywalker.Item;
+import nikochan2k.citywalker.ItemSpool;
+
+class Tileset implements Closeable {
+
+	private static class Node {
+
+		final List<Node> children = new ArrayList<>(4);
+		String content;
+		double geometricError;
+		final double[] region = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+				Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+
+		void union(double[] other) {
+			region[0] = Math.min(region[0], other[0]);
+			region[1] = Math.min(region[1], other[1]);
+			region[2] = Math.max(region[2], other[2]);
+			region[3] = Math.max(region[3], other[3]);
+			region[4] = Math.min(region[4], other[4]);
+			region[5] = Math.max(region[5], other[5]);
+		}
+
+	}
+
+	static final String FILE_NAME = "tileset.json";
+	private static final int MAX_DEPTH = 20;
+	private static final double EARTH_RADIUS = 6378137.0;
+	// parent tiles are replaced by their children once this many times smaller on screen
+	private static final double ERROR_RATIO = 20;
+
+	private static void appendNode(StringBuilder sb, Node node, boolean root) {
+		sb.append("{\"boundingVolume\":{\"region\":[");
+		for (int i = 0; i < node.region.length; i++) {
+			if (i != 0) {
+				sb.append(',');
+			}
+			sb.append(node.region[i]);
+		}
+		sb.append("]},\"geometricError\":");
+		Json.appendNumber(sb, node.geometricError);
+		if (root) {
+			sb.append(",\"refine\":\"ADD\"");
+		}
+		if (node.content != null) {
+			sb.append(",\"content\":{\"uri\":");
+			Json.appendString(sb, node.content);
+			sb.append('}');
+		}
+		if (!node.children.isEmpty()) {
+			sb.append(",\"children\":[");
+			for (int i = 0; i < node.children.size(); i++) {
+				if (i != 0) {
+					sb.append(',');
+				}
+				appendNode(sb, node.children.get(i), false);
+			}
+			sb.append(']');
+		}
+		sb.append('}');
+	}
+
+	private static int countTiles(Node node) {
+		int count = node.content == null ? 0 : 1;
+		for (Node child : node.children) {
+			count += countTiles(child);
+		}
+		return count;
+	}
+
+	private static double getSpan(double[] region) {
+		double width = (region[2] - region[0]) * Math.cos((region[1] + region[3]) / 2);
+		double height = region[3] - region[1];
+		return Math.max(width, height) * EARTH_RADIUS;
+	}
+
+	private final double[] bounds = new double[4];
+	private final File dir;
+	private final B3dmEncoder encoder;
+	private double[] lats = new double[1024];
+	private double[] lons = new double[1024];
+	private final int maxFeatures;
+	private double maxLat = Double.NEGATIVE_INFINITY;
+	private double maxLon = Double.NEGATIVE_INFINITY;
+	private double minLat = Double.POSITIVE_INFINITY;
+	private double minLon = Double.POSITIVE_INFINITY;
+	private long[] positions = new long[1024];
+	private int size;
+	private final ItemSpool spool;
+
+	Tileset(File dir, int maxFeatures) throws IOException {
+		this(dir, maxFeatures, 0);
+	}
+
+	Tileset(File dir, int maxFeatures, double geoidHeight) throws IOException {
+		this.dir = dir;
+		this.encoder = new B3dmEncoder(geoidHeight);
+		this.maxFeatures = maxFeatures;
+		this.spool = new ItemSpool();
+	}
+
+	synchronized void add(Item item) throws IOException {
+		if (item.getVertexCount() < 3) {
+			return;
+		}
+		item.getBounds(bounds);
+		if (size == positions.length) {
+			positions = Arrays.copyOf(positions, size * 2);
+			lons = Arrays.copyOf(lons, size * 2);
+			lats = Arrays.copyOf(lats, size * 2);
+		}
+		positions[size] = spool.append(item);
+		lons[size] = (bounds[0] + bounds[2]) / 2;
+		lats[size] = (bounds[1] + bounds[3]) / 2;
+		minLon = Math.min(minLon, lons[size]);
+		minLat = Math.min(minLat, lats[size]);
+		maxLon = Math.max(maxLon, lons[size]);
+		maxLat = Math.max(maxLat, lats[size]);
+		size++;
+	}
+
+	private Node build(int[] order, int from, int to, double west, double south, double east, double north,
+			String name, int depth) throws IOException {
+		if (to - from <= maxFeatures || depth == MAX_DEPTH) {
+			List<Item> items = new ArrayList<>(to - from);
+			for (int i = from; i < to; i++) {
+				items.add(spool.read(positions[order[i]]));
+			}
+			byte[] b3dm = encoder.encode(items);
+			if (b3dm == null) {
+				return null;
+			}
+			Node node = new Node();
+			node.content = name + ".b3dm";
+			node.union(encoder.getRegion());
+			Files.write(new File(dir, node.content).toPath(), b3dm);
+			return node;
+		}
+
+		double midLon = (west + east) / 2;
+		double midLat = (south + north) / 2;
+		int[] starts = new int[5];
+		int[] quadrants = new int[to - from];
+		for (int i = from; i < to; i++) {
+			int q = (midLon <= lons[order[i]] ? 1 : 0) | (midLat <= lats[order[i]] ? 2 : 0);
+			quadrants[i - from] = q;
+			starts[q + 1]++;
+		}
+		for (int q = 0; q < 4; q++) {
+			starts[q + 1] += starts[q];
+		}
+		int[] sorted = new int[to - from];
+		int[] next = Arrays.copyOf(starts, 4);
+		for (int i = from; i < to; i++) {
+			sorted[next[quadrants[i - from]]++] = order[i];
+		}
+		System.arraycopy(sorted, 0, order, from, sorted.length);
+
+		Node node = new Node();
+		for (int q = 0; q < 4; q++) {
+			if (starts[q] == starts[q + 1]) {
+				continue;
+			}
+			double w = (q & 1) == 0 ? west : midLon;
+			double e = (q & 1) == 0 ? midLon : east;
+			double s = (q & 2) == 0 ? south : midLat;
+			double n = (q & 2) == 0 ? midLat : north;
+			Node child = build(order, from + starts[q], from + starts[q + 1], w, s, e, n, name + "-" + q, depth + 1);
+			if (child != null) {
+				node.children.add(child);
+				node.union(child.region);
+			}
+		}
+		if (node.children.isEmpty()) {
+			return null;
+		}
+		node.geometricError = getSpan(node.region) / ERROR_RATIO;
+		return node;
+	}
+
+	@Override
+	public void close() {
+		spool.close();
+	}
+
+	synchronized int write() throws IOException {
+		if (size == 0) {
+			return 0;
+		}
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Could not create " + dir.getAbsolutePath());
+		}
+		int[] order = new int[size];
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		Node root = build(order, 0, size, minLon, minLat, maxLon, maxLat, "0", 0);
+		if (root == null) {
+			return 0;
+		}
+
+		StringBuilder sb = new StringBuilder(4096);
+		sb.append("{\"asset\":{\"version\":\"1.0\"},\"geometricError\":");
+		Json.appendNumber(sb, Math.max(root.geometricError, getSpan(root.region) / ERROR_RATIO) * 2);
+		sb.append(",\"root\":");
+		appendNode(sb, root, true);
+		sb.append('}');
+		Files.write(new File(dir, FILE_NAME).toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+		return countTiles(root);
+	}
+
+}
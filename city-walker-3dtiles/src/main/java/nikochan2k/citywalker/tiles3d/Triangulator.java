@@ -0,0 +1,72 @@
+package nikochan2k.citywalker.tiles3d;
+
+final class Triangulator {
+
+	private static double cross(double ax, double ay, double bx, double by, double cx, double cy) {
+		return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+	}
+
+	private static boolean isEar(double[] xs, double[] ys, int[] ring, int n, int i) {
+		int a = ring[(i + n - 1) % n];
+		int b = ring[i];
+		int c = ring[(i + 1) % n];
+		if (cross(xs[a], ys[a], xs[b], ys[b], xs[c], ys[c]) <= 0) {
+			return false;
+		}
+		for (int j = 0; j < n; j++) {
+			int p = ring[j];
+			if (p == a || p == b || p == c) {
+				continue;
+			}
+			if (0 <= cross(xs[a], ys[a], xs[b], ys[b], xs[p], ys[p])
+					&& 0 <= cross(xs[b], ys[b], xs[c], ys[c], xs[p], ys[p])
+					&& 0 <= cross(xs[c], ys[c], xs[a], ys[a], xs[p], ys[p])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// ear clipping of a counter-clockwise ring, writes n - 2 triangles to indexes
+	static int triangulate(double[] xs, double[] ys, int n, int[] indexes) {
+		int[] ring = new int[n];
+		for (int i = 0; i < n; i++) {
+			ring[i] = i;
+		}
+		int count = 0;
+		int remaining = n;
+		int i = 0;
+		int misses = 0;
+		while (3 < remaining) {
+			if (isEar(xs, ys, ring, remaining, i)) {
+				indexes[count * 3] = ring[(i + remaining - 1) % remaining];
+				indexes[count * 3 + 1] = ring[i];
+				indexes[count * 3 + 2] = ring[(i + 1) % remaining];
+				count++;
+				System.arraycopy(ring, i + 1, ring, i, remaining - i - 1);
+				remaining--;
+				i %= remaining;
+				misses = 0;
+			} else if (++misses > remaining) {
+				// self-intersecting or degenerate ring, fall back to a fan
+				for (int j = 1; j < remaining - 1; j++) {
+					indexes[count * 3] = ring[0];
+					indexes[count * 3 + 1] = ring[j];
+					indexes[count * 3 + 2] = ring[j + 1];
+					count++;
+				}
+				return count;
+			} else {
+				i = (i + 1) % remaining;
+			}
+		}
+		indexes[count * 3] = ring[0];
+		indexes[count * 3 + 1] = ring[1];
+		indexes[count * 3 + 2] = ring[2];
+		return count + 1;
+	}
+
+	private Triangulator() {
+	}
+
+}
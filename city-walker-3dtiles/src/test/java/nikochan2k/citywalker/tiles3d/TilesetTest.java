@@ -0,0 +1,86 @@
+package nikochan2k.citywalker.tiles3d;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nikochan2k.citywalker.Item;
+import nikochan2k.citywalker.ItemFixture;
+
+class TilesetTest {
+
+	@TempDir
+	File dir;
+
+	@Test
+	void testEncode() {
+		B3dmEncoder encoder = new B3dmEncoder();
+		byte[] b3dm = encoder.encode(Collections.singletonList(ItemFixture.building(0, 139.76, 35.68, 0.0001, 3)));
+		assertNotNull(b3dm);
+		ByteBuffer bb = ByteBuffer.wrap(b3dm).order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals("b3dm", new String(b3dm, 0, 4, StandardCharsets.US_ASCII));
+		assertEquals(1, bb.getInt(4));
+		assertEquals(b3dm.length, bb.getInt(8));
+		int featureJson = bb.getInt(12);
+		int featureBin = bb.getInt(16);
+		int batchJson = bb.getInt(20);
+		int batchBin = bb.getInt(24);
+		int glb = 28 + featureJson + featureBin + batchJson + batchBin;
+		assertEquals(0, glb % 8);
+		String feature = new String(b3dm, 28, featureJson, StandardCharsets.UTF_8);
+		assertTrue(feature.contains("\"BATCH_LENGTH\":1"));
+		String batch = new String(b3dm, 28 + featureJson + featureBin, batchJson, StandardCharsets.UTF_8);
+		assertTrue(batch.contains("\"3001\""));
+		assertEquals("glTF", new String(b3dm, glb, 4, StandardCharsets.US_ASCII));
+		assertEquals(b3dm.length - glb, bb.getInt(glb + 8));
+
+		double[] region = encoder.getRegion();
+		assertEquals(Math.toRadians(139.76), region[0], 1e-9);
+		assertEquals(Math.toRadians(35.68), region[1], 1e-9);
+		assertEquals(3, region[4], 1e-6);
+		assertEquals(15.5, region[5], 1e-6);
+
+		// orthometric heights are lifted onto the ellipsoid
+		B3dmEncoder lifted = new B3dmEncoder(36.7);
+		assertNotNull(lifted.encode(Collections.singletonList(ItemFixture.building(0, 139.76, 35.68, 0.0001, 3))));
+		assertEquals(39.7, lifted.getRegion()[4], 1e-6);
+		assertEquals(52.2, lifted.getRegion()[5], 1e-6);
+
+		// nothing to extrude
+		Item line = new Item("line");
+		line.addVertex(139.76, 35.68, 0);
+		line.addVertex(139.77, 35.68, 0);
+		assertNull(encoder.encode(Collections.singletonList(line)));
+	}
+
+	@Test
+	void testWrite() throws IOException {
+		Tileset tileset = new Tileset(dir, 4);
+		for (int i = 0; i < 10; i++) {
+			for (int j = 0; j < 10; j++) {
+				tileset.add(ItemFixture.building(i * 10 + j, 139.76 + i * 0.001, 35.68 + j * 0.001, 0.0005, 3));
+			}
+		}
+		int written = tileset.write();
+		tileset.close();
+		assertTrue(25 <= written);
+
+		String json = new String(Files.readAllBytes(new File(dir, Tileset.FILE_NAME).toPath()),
+				StandardCharsets.UTF_8);
+		assertTrue(json.startsWith("{\"asset\":{\"version\":\"1.0\"}"));
+		assertTrue(json.contains("\"refine\":\"ADD\""));
+		assertTrue(json.contains("\"uri\":\"0-0-0-0.b3dm\""));
+		assertTrue(new File(dir, "0-0-0-0.b3dm").isFile());
+		assertFalse(new File(dir, "0.b3dm").exists());
+	}
+
+}
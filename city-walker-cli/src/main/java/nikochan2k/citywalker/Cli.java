@@ -1,36 +1,76 @@
 package nikochan2k.citywalker;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
-import java.util.HashSet;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.Set;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
-import org.reflections.Reflections;
-
-import com.esotericsoftware.wildcard.Paths;
+import com.github.luben.zstd.ZstdInputStream;
 
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.Parameters;
 
-@Command(name = "city-walker", mixinStandardHelpOptions = true, version = "0.1.0", description = "Convert CityGML to various formats")
+@Command(name = "city-walker", mixinStandardHelpOptions = true, version = Cli.VERSION, description = "Convert CityGML to various formats")
 public class Cli implements Callable<Integer> {
 
+	static final String VERSION = "0.1.0";
 	private static final Logger LOGGER = Logger.getLogger(Cli.class.getName());
+	private static final String ARCHIVE_SEPARATOR = ".zip!";
+	private static final String DEFAULT_ENTRY_GLOB = "**.gml";
+	private static final String JOB_EXTENSION = ".job";
+	private static final String STOP_FILE = "STOP";
 
 	private final FileSystem fs;
 	final String sep;
-	private Set<Factory> factories;
+
+	@Option(names = { "-c", "--compress" }, description = "Output compression: none or gzip (Default: none)")
+	String compress = "none";
+
+	@Option(names = { "--compress-level" }, description = "Output compression level from 1 to 9 (Default: 6)")
+	int compressLevel = 6;
+
+	@Option(names = { "-e", "--engine" }, description = "Parser engine: jaxb or stax (Default: jaxb)")
+	String engine = "jaxb";
 
 	@Option(names = { "-f", "--flipXY" }, description = "flip X and Y coordinate")
 	boolean flipXY;
 
-	@Parameters(paramLabel = "FILE", description = "Glob pattern of file path.")
+	@Parameters(paramLabel = "FILE", description = "Glob pattern of file path. .gz and .zst files are decompressed, and entries of .zip archives are read in place, e.g. city.zip!/udx/bldg/*.gml, and written under city/udx/bldg/")
 	private String[] globs;
 
 	@Option(names = { "-s", "--src" }, description = "Source SRS (Default: Try to detect, or EPSG:4326)")
@@ -45,9 +85,39 @@ public class Cli implements Callable<Integer> {
 	@Option(names = { "-d", "--dst" }, description = "Destination SRS (Default: EPSG:4326)")
 	String outputSRS;
 
+	@Option(names = { "-p", "--props" }, split = ",", description = "Comma separated property names to output, prefix a name with '-' to exclude it, id and measuredHeight are kept unless excluded (Default: all)")
+	String[] props;
+
+	@Option(names = { "--serve" }, paramLabel = "<spoolDir>", description = "Keep running and convert the files listed in *.job files dropped into the spool directory")
+	File spoolDir;
+
+	@Option(names = { "--stream" }, description = "Read buildings one by one instead of loading the whole city model")
+	boolean streaming;
+
 	@Option(names = { "-t", "--type" }, description = "Output format type", required = true)
 	String type;
 
+	@Option(names = { "-i", "--incremental" }, description = "Skip input files whose output is up to date, tracked in a manifest in the output directory")
+	boolean incremental;
+
+	@Option(names = { "-j", "--threads" }, description = "Number of files converted in parallel (Default: 1)")
+	int threads = 1;
+
+	@Option(names = { "-w", "--workers" }, description = "Number of threads converting buildings within a file (Default: 1)")
+	int workers = 1;
+
+	private final List<FileSystem> archives = new ArrayList<>();
+	private final AtomicInteger converted = new AtomicInteger();
+	private final AtomicInteger failures = new AtomicInteger();
+	private final List<Future<?>> futures = new ArrayList<>();
+	private final ConcurrentMap<File, Manifest> manifests = new ConcurrentHashMap<>();
+	private final AtomicInteger skipped = new AtomicInteger();
+	private Compression compression = Compression.NONE;
+	private ExecutorService executor;
+	private Factory factory;
+	private String fingerprint;
+	private ThreadLocal<Parser> parsers;
+
 	public Cli() {
 		fs = FileSystems.getDefault();
 		sep = fs.getSeparator();
@@ -55,82 +125,422 @@ public class Cli implements Callable<Integer> {
 
 	@Override
 	public Integer call() throws Exception {
-		Factory factory = null;
-		for (Factory f : getFactories()) {
-			if (f.getTypeName().equalsIgnoreCase(type.trim())) {
-				factory = f;
-				break;
-			}
+		try {
+			compression = Compression.parse(compress, compressLevel);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			return 1;
+		}
+
+		try {
+			factory = getFactory(type.trim());
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			return 1;
 		}
 		if (factory == null) {
 			System.err.println("Output type not found: " + type.trim());
 			return 1;
 		}
 
-		Parser parser = new Parser(factory);
-		Paths paths = new Paths();
-		for (String glob : globs) {
-			if (glob.contains("*")) {
-				if (glob.contains("/") && "\\".equals(sep)) {
-					glob = glob.replace('/', '\\');
-				} else if (glob.contains("\\") && "/".equals(sep)) {
-					glob = glob.replace('\\', '/');
+		final Factory f = factory;
+		fingerprint = Manifest.hash(String.join("\n", VERSION, engine.trim().toLowerCase(Locale.ROOT),
+				f.getTypeName(), String.valueOf(flipXY),
+				String.valueOf(noAttributes), String.valueOf(inputSRS), String.valueOf(outputSRS),
+				props == null ? "" : String.join(",", props), compression.getFormat(),
+				String.valueOf(compression.getLevel())));
+		if ("stax".equalsIgnoreCase(engine.trim())) {
+			parsers = ThreadLocal.withInitial(() -> new StaxParser(f));
+		} else if ("jaxb".equalsIgnoreCase(engine.trim())) {
+			parsers = ThreadLocal.withInitial(() -> new Parser(f));
+		} else {
+			System.err.println("Parser engine not found: " + engine.trim());
+			return 1;
+		}
+		if (1 < threads) {
+			executor = Executors.newFixedThreadPool(threads);
+		}
+		try {
+			if (spoolDir != null) {
+				return serve(spoolDir.toPath());
+			}
+			if (globs == null) {
+				System.err.println("No input file");
+				return 1;
+			}
+			convertAll(Arrays.asList(globs));
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+		}
+
+		TransformCache cache = TransformCache.getInstance();
+		LOGGER.info(String.format("SRS cache: %d hits, %d misses, transform cache: %d hits, %d misses",
+				cache.getDetectHitCount(), cache.getDetectMissCount(), cache.getTransformHitCount(),
+				cache.getTransformMissCount()));
+
+		if (0 < failures.get()) {
+			System.err.println("Failed to convert " + failures.get() + " file(s)");
+			return 1;
+		}
+		return 0;
+	}
+
+	private void convertAll(List<String> globs) throws InterruptedException {
+		converted.set(0);
+		failures.set(0);
+		skipped.set(0);
+		futures.clear();
+		try {
+			scan(globs);
+			for (Future<?> future : futures) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					LOGGER.warning(e.getCause().toString());
+					failures.incrementAndGet();
 				}
-				int index = glob.indexOf("*") - 1;
-				File dir = new File("." + sep);
-				String pattern = "";
-				for (int i = index; 0 <= i; i--) {
-					if (sep.equals("" + glob.charAt(i))) {
-						String dirPath = glob.substring(0, i);
-						dir = new File(dirPath);
-						pattern = glob.substring(i + 1);
-						break;
-					}
+			}
+			try {
+				factory.finish();
+			} catch (IOException e) {
+				LOGGER.warning(e.toString());
+				failures.incrementAndGet();
+			}
+		} finally {
+			for (FileSystem archive : archives) {
+				try {
+					archive.close();
+				} catch (IOException e) {
+					LOGGER.warning(e.toString());
 				}
-				if (!dir.exists() || !dir.isDirectory()) {
-					LOGGER.warning("Not found: " + dir.getAbsolutePath());
-					continue;
+			}
+			archives.clear();
+		}
+		for (Manifest manifest : manifests.values()) {
+			try {
+				manifest.save();
+			} catch (IOException e) {
+				LOGGER.warning(e.toString());
+			}
+		}
+		if (0 < skipped.get()) {
+			LOGGER.info(String.format("Skipped %d up-to-date file(s)", skipped.get()));
+		}
+	}
+
+	private void convert(File file) {
+		if (file.getName().toLowerCase(Locale.ROOT).endsWith(".zip")) {
+			convertArchive(file, DEFAULT_ENTRY_GLOB);
+			return;
+		}
+		submit(() -> parse(file));
+	}
+
+	private void convertArchive(File zip, String glob) {
+		if (!zip.isFile()) {
+			LOGGER.warning("Not found: " + zip.getAbsolutePath());
+			return;
+		}
+		FileSystem zipfs;
+		try {
+			zipfs = FileSystems.newFileSystem(zip.toPath(), (ClassLoader) null);
+		} catch (IOException e) {
+			LOGGER.warning(zip.getAbsolutePath() + ": " + e.toString());
+			failures.incrementAndGet();
+			return;
+		}
+		archives.add(zipfs);
+		Path root = zipfs.getPath("/");
+		PathMatcher matcher = zipfs.getPathMatcher("glob:" + glob);
+		try (Stream<Path> entries = Files.walk(root)) {
+			entries.filter(entry -> Files.isRegularFile(entry) && matcher.matches(root.relativize(entry)))
+					.forEach(entry -> {
+						File virtual = getEntryFile(zip, root.relativize(entry));
+						submit(() -> parse(entry, virtual));
+					});
+		} catch (IOException e) {
+			LOGGER.warning(zip.getAbsolutePath() + ": " + e.toString());
+			failures.incrementAndGet();
+		}
+	}
+
+	// entries keep their folders under a directory named after the archive, so same-named entries do not collide
+	private File getEntryFile(File zip, Path relative) {
+		String zipName = zip.getName();
+		File dir = new File(outputDir != null ? outputDir : zip.getAbsoluteFile().getParentFile(),
+				zipName.substring(0, zipName.length() - 4));
+		Path parent = relative.getParent();
+		if (parent != null) {
+			for (Path name : parent) {
+				dir = new File(dir, name.toString());
+			}
+		}
+		return new File(dir, getBaseName(relative.getFileName().toString()));
+	}
+
+	private Manifest getManifest(File virtual) throws IOException {
+		if (!incremental) {
+			return null;
+		}
+		File output = factory.getOutput(virtual);
+		if (output == null) {
+			return null;
+		}
+		try {
+			return manifests.computeIfAbsent(output.getAbsoluteFile().getParentFile(), dir -> {
+				try {
+					return new Manifest(dir);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
 				}
-				Paths result = paths.glob(dir.getAbsolutePath(), pattern);
-				for (Iterator<File> ite = result.fileIterator(); ite.hasNext();) {
-					File file = ite.next();
-					parser.parse(file);
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	private String getBaseName(String fileName) {
+		String lower = fileName.toLowerCase(Locale.ROOT);
+		if (lower.endsWith(".gz")) {
+			return fileName.substring(0, fileName.length() - 3);
+		}
+		if (lower.endsWith(".zst")) {
+			return fileName.substring(0, fileName.length() - 4);
+		}
+		return fileName;
+	}
+
+	private boolean isCurrent(Path path, File virtual) {
+		try {
+			Manifest manifest = getManifest(virtual);
+			if (manifest != null && manifest.isCurrent(path, factory.getOutput(virtual), fingerprint)) {
+				LOGGER.info("Up to date: " + path.toUri());
+				skipped.incrementAndGet();
+				return true;
+			}
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warning(path.toUri() + ": " + e.toString());
+		}
+		return false;
+	}
+
+	private InputStream openInput(Path path) throws IOException {
+		InputStream is = Files.newInputStream(path);
+		String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+		try {
+			if (name.endsWith(".gz")) {
+				return new GZIPInputStream(is, 65536);
+			}
+			if (name.endsWith(".zst")) {
+				return new ZstdInputStream(is);
+			}
+			return is;
+		} catch (IOException | RuntimeException e) {
+			is.close();
+			throw e;
+		}
+	}
+
+	private void parse(File file) {
+		String fileName = file.getName();
+		String baseName = getBaseName(fileName);
+		if (!baseName.equals(fileName)) {
+			parse(file.toPath(), new File(file.getParentFile(), baseName));
+			return;
+		}
+		if (isCurrent(file.toPath(), file)) {
+			return;
+		}
+		try {
+			parsers.get().parse(file);
+			record(file.toPath(), file);
+			converted.incrementAndGet();
+		} catch (IOException | CityWalkerException e) {
+			LOGGER.warning(file.getAbsolutePath() + ": " + e.toString());
+			failures.incrementAndGet();
+		}
+	}
+
+	private void parse(Path path, File virtual) {
+		if (isCurrent(path, virtual)) {
+			return;
+		}
+		try {
+			File output = factory.getOutput(virtual);
+			if (output != null) {
+				File dir = output.getAbsoluteFile().getParentFile();
+				if (!dir.isDirectory() && !dir.mkdirs()) {
+					throw new IOException("Failed to create directory: " + dir.getAbsolutePath());
 				}
+			}
+			try (InputStream is = openInput(path)) {
+				parsers.get().parse(is, virtual);
+			}
+			record(path, virtual);
+			converted.incrementAndGet();
+		} catch (IOException | CityWalkerException e) {
+			LOGGER.warning(path.toUri() + ": " + e.toString());
+			failures.incrementAndGet();
+		}
+	}
+
+	private void record(Path path, File virtual) throws IOException {
+		Manifest manifest = getManifest(virtual);
+		if (manifest != null) {
+			manifest.update(path, fingerprint);
+		}
+	}
+
+	private void submit(Runnable task) {
+		if (executor == null) {
+			task.run();
+			return;
+		}
+		futures.add(executor.submit(task));
+	}
+
+	private void scan(List<String> globs) {
+		FileScanner scanner = new FileScanner(fs, this::convert);
+		for (String glob : globs) {
+			int separator = glob.toLowerCase(Locale.ROOT).indexOf(ARCHIVE_SEPARATOR);
+			if (0 < separator) {
+				String entryGlob = glob.substring(separator + ARCHIVE_SEPARATOR.length()).replace('\\', '/');
+				while (entryGlob.startsWith("/")) {
+					entryGlob = entryGlob.substring(1);
+				}
+				if (entryGlob.isEmpty()) {
+					entryGlob = DEFAULT_ENTRY_GLOB;
+				}
+				convertArchive(new File(glob.substring(0, separator + 4)), entryGlob);
 			} else {
-				File file = new File(glob);
-				if (!file.exists() || !file.isFile()) {
-					LOGGER.warning("Not found: " + file.getAbsolutePath());
-					continue;
+				try {
+					scanner.scan(glob);
+				} catch (IOException e) {
+					LOGGER.warning(glob + ": " + e.toString());
 				}
-				parser.parse(file);
 			}
 		}
+	}
 
-		return 0;
+	private void runJob(Path job) {
+		String fileName = job.getFileName().toString();
+		String name = fileName.substring(0, fileName.length() - JOB_EXTENSION.length());
+		Path dir = job.getParent();
+		Path running = dir.resolve(name + ".running");
+		try {
+			Files.move(job, running, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			LOGGER.fine(e.toString());
+			return;
+		}
+
+		LOGGER.info("Running job: " + name);
+		long start = System.nanoTime();
+		Properties status = new Properties();
+		try {
+			List<String> jobGlobs = new ArrayList<>();
+			for (String line : Files.readAllLines(running, StandardCharsets.UTF_8)) {
+				line = line.trim();
+				if (!line.isEmpty() && !line.startsWith("#")) {
+					jobGlobs.add(line);
+				}
+			}
+			convertAll(jobGlobs);
+			status.setProperty("status", failures.get() == 0 ? "ok" : "failed");
+		} catch (IOException | InterruptedException | RuntimeException e) {
+			LOGGER.warning(name + ": " + e.toString());
+			status.setProperty("status", "failed");
+			status.setProperty("error", e.toString());
+			if (e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		status.setProperty("converted", String.valueOf(converted.get()));
+		status.setProperty("failed", String.valueOf(failures.get()));
+		status.setProperty("skipped", String.valueOf(skipped.get()));
+		status.setProperty("elapsed", String.valueOf(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+
+		Path temp = dir.resolve(name + ".status.tmp");
+		try {
+			try (OutputStream os = Files.newOutputStream(temp)) {
+				status.store(os, null);
+			}
+			Files.move(temp, dir.resolve(name + ".status"), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			Files.delete(running);
+		} catch (IOException e) {
+			LOGGER.warning(name + ": " + e.toString());
+		}
 	}
 
-	private Set<? extends Factory> getFactories() {
-		if (factories != null) {
-			return factories;
+	private int serve(Path dir) throws IOException {
+		if (!Files.isDirectory(dir)) {
+			System.err.println("Spool directory not found: " + dir.toAbsolutePath());
+			return 1;
+		}
+		LOGGER.info("Watching " + dir.toAbsolutePath());
+		Path stop = dir.resolve(STOP_FILE);
+		try (WatchService watcher = fs.newWatchService()) {
+			dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE);
+			while (!Thread.currentThread().isInterrupted()) {
+				if (Files.exists(stop)) {
+					Files.delete(stop);
+					break;
+				}
+				List<Path> jobs = new ArrayList<>();
+				try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + JOB_EXTENSION)) {
+					for (Path job : stream) {
+						jobs.add(job);
+					}
+				}
+				Collections.sort(jobs);
+				for (Path job : jobs) {
+					runJob(job);
+				}
+				WatchKey key = watcher.poll(1, TimeUnit.SECONDS);
+				if (key != null) {
+					key.pollEvents();
+					key.reset();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
+		LOGGER.info("Stopped watching " + dir.toAbsolutePath());
+		return 0;
+	}
 
-		Reflections reflections = new Reflections(Thread.currentThread().getContextClassLoader());
-		Set<Class<? extends Factory>> factoryClasses = reflections.getSubTypesOf(Factory.class);
-		factories = new HashSet<Factory>(factoryClasses.size());
-		for (Class<? extends Factory> fc : factoryClasses) {
+	private Factory getFactory(String typeName) {
+		Iterator<Factory> ite = ServiceLoader.load(Factory.class).iterator();
+		while (true) {
+			Factory factory;
 			try {
-				Factory factory = fc.newInstance();
-				factory.setOutputDir(outputDir);
-				factory.setNoAttributes(noAttributes);
-				factory.setInputSRS(inputSRS);
-				factory.setOutputSRS(outputSRS);
-				factory.setFlipXY(flipXY);
-				factories.add(factory);
-			} catch (InstantiationException | IllegalAccessException | SecurityException | IllegalArgumentException e) {
+				if (!ite.hasNext()) {
+					return null;
+				}
+				factory = ite.next();
+			} catch (ServiceConfigurationError e) {
 				LOGGER.warning(e.toString());
+				continue;
+			}
+			if (!factory.getTypeName().equalsIgnoreCase(typeName)) {
+				continue;
+			}
+			factory.setCompression(compression);
+			factory.setOutputDir(outputDir);
+			factory.setNoAttributes(noAttributes);
+			factory.setInputSRS(inputSRS);
+			factory.setOutputSRS(outputSRS);
+			factory.setFlipXY(flipXY);
+			factory.setStreaming(streaming);
+			if (props != null) {
+				factory.setPropertyFilter(PropertyFilter.parse(props));
 			}
+			factory.setWorkers(workers);
+			return factory;
 		}
-		return factories;
 	}
 
 	public static void main(String... args) {
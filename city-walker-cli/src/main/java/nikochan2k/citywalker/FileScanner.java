@@ -0,0 +1,160 @@
+package nikochan2k.citywalker;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+class FileScanner {
+
+	private static final Logger LOGGER = Logger.getLogger(FileScanner.class.getName());
+	private static final String ANY_DIRECTORIES = "**/";
+
+	private static void expand(String pattern, int from, List<String> patterns) {
+		int index = pattern.indexOf(ANY_DIRECTORIES, from);
+		if (index < 0) {
+			patterns.add(pattern);
+			return;
+		}
+		expand(pattern, index + ANY_DIRECTORIES.length(), patterns);
+		expand(pattern.substring(0, index) + pattern.substring(index + ANY_DIRECTORIES.length()), index, patterns);
+	}
+
+	private static int indexOfGlob(String path) {
+		for (int i = 0; i < path.length(); i++) {
+			switch (path.charAt(i)) {
+			case '*':
+			case '?':
+			case '[':
+			case '{':
+				return i;
+			default:
+				break;
+			}
+		}
+		return -1;
+	}
+
+	private final Consumer<File> consumer;
+	private final FileSystem fs;
+	private final String sep;
+
+	FileScanner(FileSystem fs, Consumer<File> consumer) {
+		this.fs = fs;
+		this.sep = fs.getSeparator();
+		this.consumer = consumer;
+	}
+
+	void scan(String glob) throws IOException {
+		if ("\\".equals(sep)) {
+			glob = glob.replace('/', '\\');
+		} else {
+			glob = glob.replace('\\', '/');
+		}
+		int index = indexOfGlob(glob);
+		if (index < 0) {
+			File file = new File(glob);
+			if (!file.isFile()) {
+				LOGGER.warning("Not found: " + file.getAbsolutePath());
+				return;
+			}
+			consumer.accept(file);
+			return;
+		}
+
+		int lastSep = glob.lastIndexOf(sep, index);
+		Path dir;
+		String pattern;
+		if (lastSep < 0) {
+			dir = fs.getPath(".");
+			pattern = glob;
+		} else {
+			dir = fs.getPath(lastSep == 0 ? sep : glob.substring(0, lastSep));
+			pattern = glob.substring(lastSep + 1);
+		}
+		if (!Files.isDirectory(dir)) {
+			LOGGER.warning("Not found: " + dir.toAbsolutePath());
+			return;
+		}
+		walk(dir, pattern);
+	}
+
+	private void walk(Path dir, String pattern) throws IOException {
+		pattern = pattern.replace(sep, "/");
+		List<String> patterns = new ArrayList<>();
+		expand(pattern, 0, patterns);
+		List<PathMatcher> matchers = new ArrayList<>(patterns.size());
+		for (String p : patterns) {
+			matchers.add(fs.getPathMatcher("glob:" + p));
+		}
+
+		String[] segments = pattern.split("/");
+		List<PathMatcher> segmentMatchers = new ArrayList<>(segments.length);
+		for (int i = 0; i < segments.length - 1 && !segments[i].contains("**"); i++) {
+			segmentMatchers.add(fs.getPathMatcher("glob:" + segments[i]));
+		}
+		boolean unbounded = pattern.contains("**");
+		int maxDepth = unbounded ? Integer.MAX_VALUE : segments.length;
+
+		// follow symbolic links like File.listFiles did, loops are reported by visitFileFailed
+		Files.walkFileTree(dir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), maxDepth, new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attrs) {
+				if (path.equals(dir)) {
+					return FileVisitResult.CONTINUE;
+				}
+				Path relative = dir.relativize(path);
+				int depth = relative.getNameCount();
+				for (int i = 0; i < depth; i++) {
+					if (i == segmentMatchers.size()) {
+						return unbounded ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+					}
+					if (!segmentMatchers.get(i).matches(relative.getName(i))) {
+						return FileVisitResult.SKIP_SUBTREE;
+					}
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+				if (!attrs.isRegularFile()) {
+					return FileVisitResult.CONTINUE;
+				}
+				Path relative = dir.relativize(path);
+				for (PathMatcher matcher : matchers) {
+					if (matcher.matches(relative)) {
+						consumer.accept(path.toFile());
+						break;
+					}
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFileFailed(Path path, IOException e) {
+				if (e instanceof FileSystemLoopException) {
+					LOGGER.fine(path + ": " + e.toString());
+					return FileVisitResult.CONTINUE;
+				}
+				LOGGER.warning(path + ": " + e.toString());
+				return FileVisitResult.CONTINUE;
+			}
+
+		});
+	}
+
+}
@@ -0,0 +1,133 @@
+package nikochan2k.citywalker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+class Manifest {
+
+	static final String FILE_NAME = ".citywalker-manifest";
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static String hash(Path path) throws IOException {
+		MessageDigest digest = createDigest();
+		byte[] buffer = new byte[65536];
+		try (InputStream is = Files.newInputStream(path)) {
+			int n;
+			while ((n = is.read(buffer)) != -1) {
+				digest.update(buffer, 0, n);
+			}
+		}
+		return toHex(digest.digest());
+	}
+
+	static String hash(String text) {
+		return toHex(createDigest().digest(text.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+			sb.append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+
+	private final Properties entries = new Properties();
+	private final File file;
+	private boolean modified;
+
+	Manifest(File dir) throws IOException {
+		file = new File(dir, FILE_NAME);
+		if (file.isFile()) {
+			try (InputStream is = Files.newInputStream(file.toPath())) {
+				entries.load(is);
+			}
+		}
+	}
+
+	boolean isCurrent(Path input, File output, String fingerprint) throws IOException {
+		String entry = entries.getProperty(input.toUri().toString());
+		if (entry == null || !output.isFile()) {
+			return false;
+		}
+		String[] fields = entry.split(" ");
+		if (fields.length != 4 || !fields[3].equals(fingerprint)) {
+			return false;
+		}
+		long size = Files.size(input);
+		if (size != Long.parseLong(fields[0])) {
+			return false;
+		}
+		long mtime = Files.getLastModifiedTime(input).toMillis();
+		if (mtime == Long.parseLong(fields[1])) {
+			return true;
+		}
+		String hash = hash(input);
+		if (!hash.equals(fields[2])) {
+			return false;
+		}
+		put(input, size, mtime, hash, fingerprint);
+		return true;
+	}
+
+	private synchronized void append(String key, String value) throws IOException {
+		Properties entry = new Properties();
+		entry.setProperty(key, value);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		entry.store(bytes, null);
+		// skip the date comment, a later line for the same key wins on load
+		String text = new String(bytes.toByteArray(), StandardCharsets.ISO_8859_1);
+		String line = text.substring(text.indexOf('\n') + 1);
+		Files.write(file.toPath(), line.getBytes(StandardCharsets.ISO_8859_1), StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND);
+	}
+
+	private synchronized String put(Path input, long size, long mtime, String hash, String fingerprint) {
+		String key = input.toUri().toString();
+		String value = size + " " + mtime + " " + hash + " " + fingerprint;
+		entries.setProperty(key, value);
+		modified = true;
+		return value;
+	}
+
+	// rewrites the manifest without the lines appended by update
+	synchronized void save() throws IOException {
+		if (!modified) {
+			return;
+		}
+		File dir = file.getAbsoluteFile().getParentFile();
+		File temp = File.createTempFile(FILE_NAME, ".tmp", dir);
+		try (OutputStream os = Files.newOutputStream(temp.toPath())) {
+			entries.store(os, null);
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		modified = false;
+	}
+
+	// appended right away, so an interrupted run keeps the files it has finished
+	void update(Path input, String fingerprint) throws IOException {
+		long size = Files.size(input);
+		long mtime = Files.getLastModifiedTime(input).toMillis();
+		append(input.toUri().toString(), put(input, size, mtime, hash(input), fingerprint));
+	}
+
+}
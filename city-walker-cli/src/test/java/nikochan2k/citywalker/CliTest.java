@@ -3,8 +3,15 @@ package nikochan2k.citywalker;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.junit.jupiter.api.Test;
 
@@ -89,4 +96,228 @@ class CliTest {
 		assertEquals(true, json.exists());
 	}
 
+	@Test
+	void test6() throws IOException {
+		URL url = CliTest.class.getResource("53392633_bldg_6697_op2.gml");
+		File file = new File(url.getFile());
+		File dir = Files.createTempDirectory("citywalker").toFile();
+		String[] names = { "53392633_bldg_6697_op2", "53392634_bldg_6697_op2", "53392635_bldg_6697_op2" };
+		for (String name : names) {
+			Files.copy(file.toPath(), new File(dir, name + ".gml").toPath());
+		}
+		Files.write(new File(dir, "broken.gml").toPath(), "<core:CityModel".getBytes(StandardCharsets.UTF_8));
+		Cli cli = new Cli();
+		String glob = dir.getAbsolutePath() + cli.sep + "*.gml";
+		int result = new CommandLine(cli).execute("-t=geojson", "-j=4", glob);
+		// the broken file fails the run, but does not stop the others
+		assertEquals(1, result);
+		for (String name : names) {
+			assertTrue(new File(dir, name + ".json").exists(), name);
+		}
+	}
+
+	@Test
+	void test7() throws IOException {
+		URL url = CliTest.class.getResource("53392633_bldg_6697_op2.gml");
+		String path = url.getFile();
+		File tempFile = File.createTempFile("test", ".tmp");
+		File parent = tempFile.getParentFile();
+		tempFile.delete();
+		File jaxbDir = new File(parent, "jaxb");
+		File staxDir = new File(parent, "stax");
+		jaxbDir.mkdirs();
+		staxDir.mkdirs();
+		int result = new CommandLine(new Cli()).execute("-t=geojson", "-o=" + jaxbDir.getAbsolutePath(), path);
+		assertEquals(result, 0);
+		result = new CommandLine(new Cli()).execute("-t=geojson", "-e=stax", "-o=" + staxDir.getAbsolutePath(), path);
+		assertEquals(result, 0);
+		byte[] expected = Files.readAllBytes(new File(jaxbDir, "53392633_bldg_6697_op2.json").toPath());
+		byte[] actual = Files.readAllBytes(new File(staxDir, "53392633_bldg_6697_op2.json").toPath());
+		assertEquals(new String(expected, StandardCharsets.UTF_8), new String(actual, StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void test8() throws IOException {
+		URL url = CliTest.class.getResource("53392633_bldg_6697_op2.gml");
+		File file = new File(url.getFile());
+		File dir = Files.createTempDirectory("citywalker").toFile();
+		File gz = new File(dir, "53392633_bldg_6697_op2.gml.gz");
+		try (OutputStream os = new GZIPOutputStream(new FileOutputStream(gz))) {
+			Files.copy(file.toPath(), os);
+		}
+		File zip = new File(dir, "city.zip");
+		try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(zip))) {
+			zos.putNextEntry(new ZipEntry("udx/bldg/53392634_bldg_6697_op2.gml"));
+			Files.copy(file.toPath(), zos);
+			zos.closeEntry();
+		}
+		int result = new CommandLine(new Cli()).execute("-t=geojson", "-j=2", gz.getAbsolutePath(),
+				zip.getAbsolutePath() + "!/udx/bldg/*.gml");
+		assertEquals(result, 0);
+		assertEquals(true, new File(dir, "53392633_bldg_6697_op2.json").exists());
+		assertEquals(true, new File(dir, "city/udx/bldg/53392634_bldg_6697_op2.json").exists());
+	}
+
+	@Test
+	void test9() throws IOException {
+		URL url = CliTest.class.getResource("53392633_bldg_6697_op2.gml");
+		String path = url.getFile();
+		File outputDir = Files.createTempDirectory("citywalker").toFile();
+		File json = new File(outputDir, "53392633_bldg_6697_op2.json");
+		int result = new CommandLine(new Cli()).execute("-t=geojson", "-i", "-o=" + outputDir.getAbsolutePath(), path);
+		assertEquals(result, 0);
+		assertEquals(true, new File(outputDir, Manifest.FILE_NAME).exists());
+		json.setLastModified(0);
+		result = new CommandLine(new Cli()).execute("-t=geojson", "-i", "-o=" + outputDir.getAbsolutePath(), path);
+		assertEquals(result, 0);
+		assertEquals(0, json.lastModified());
+		result = new CommandLine(new Cli()).execute("-t=geojson", "-i", "-n", "-o=" + outputDir.getAbsolutePath(), path);
+		assertEquals(result, 0);
+		assertNotEquals(0, json.lastModified());
+		json.setLastModified(0);
+		result = new CommandLine(new Cli()).execute("-t=geojson", "-i", "-n", "-e=stax",
+				"-o=" + outputDir.getAbsolutePath(), path);
+		assertEquals(result, 0);
+		assertNotEquals(0, json.lastModified());
+	}
+
+	@Test
+	void test10() throws Exception {
+		URL url = CliTest.class.getResource("53392633_bldg_6697_op2.gml");
+		String path = url.getFile();
+		File spoolDir = Files.createTempDirectory("citywalker").toFile();
+		File outputDir = Files.createTempDirectory("citywalker").toFile();
+		Thread server = new Thread(() -> new CommandLine(new Cli()).execute("-t=geojson",
+				"-o=" + outputDir.getAbsolutePath(), "--serve=" + spoolDir.getAbsolutePath()));
+		server.start();
+		File tmp = new File(spoolDir, "test.tmp");
+		Files.write(tmp.toPath(), path.getBytes(StandardCharsets.UTF_8));
+		Files.move(tmp.toPath(), new File(spoolDir, "test.job").toPath());
+		File status = new File(spoolDir, "test.status");
+		for (int i = 0; i < 600 && !status.exists(); i++) {
+			Thread.sleep(100);
+		}
+		assertEquals(true, status.exists());
+		assertEquals(true, new String(Files.readAllBytes(status.toPath()), StandardCharsets.UTF_8).contains("status=ok"));
+		assertEquals(true, new File(outputDir, "53392633_bldg_6697_op2.json").exists());
+		new File(spoolDir, "STOP").createNewFile();
+		server.join(10000);
+		assertEquals(false, server.isAlive());
+	}
+
+	@Test
+	void testCompressLevel() {
+		assertEquals(1, new CommandLine(new Cli()).execute("-t=geojson", "-c=gzip", "--compress-level=0", "a.gml"));
+		assertEquals(1, new CommandLine(new Cli()).execute("-t=geojson", "-c=gzip", "--compress-level=-1", "a.gml"));
+		assertEquals(1, new CommandLine(new Cli()).execute("-t=geojson", "-c=gzip", "--compress-level=10", "a.gml"));
+		assertEquals(1, Compression.gzip(1).getLevel());
+		assertEquals(9, Compression.gzip(9).getLevel());
+	}
+
+	@Test
+	void test12() throws IOException {
+		URL url = CliTest.class.getResource("53392633_bldg_6697_op2.gml");
+		File file = new File(url.getFile());
+		File dir = Files.createTempDirectory("citywalker").toFile();
+		File outputDir = Files.createTempDirectory("citywalker").toFile();
+		for (String zipName : new String[] { "a.zip", "b.zip" }) {
+			try (ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(new File(dir, zipName)))) {
+				for (String entry : new String[] { "udx/bldg/city.gml", "udx/other/city.gml" }) {
+					zos.putNextEntry(new ZipEntry(entry));
+					Files.copy(file.toPath(), zos);
+					zos.closeEntry();
+				}
+			}
+		}
+		String glob = dir.getAbsolutePath() + File.separator + "*.zip";
+		int result = new CommandLine(new Cli()).execute("-t=geojson", "-i", "-o=" + outputDir.getAbsolutePath(), glob);
+		assertEquals(result, 0);
+		String[] outputs = { "a/udx/bldg/city.json", "a/udx/other/city.json", "b/udx/bldg/city.json",
+				"b/udx/other/city.json" };
+		for (String output : outputs) {
+			File json = new File(outputDir, output);
+			assertEquals(true, json.exists(), output);
+			assertEquals(true, new File(json.getParentFile(), Manifest.FILE_NAME).exists(), output);
+			json.setLastModified(0);
+		}
+
+		// each entry has its own manifest record, so all four are up to date
+		result = new CommandLine(new Cli()).execute("-t=geojson", "-i", "-o=" + outputDir.getAbsolutePath(), glob);
+		assertEquals(result, 0);
+		for (String output : outputs) {
+			assertEquals(0, new File(outputDir, output).lastModified(), output);
+		}
+
+		result = new CommandLine(new Cli()).execute("-t=geojson", glob);
+		assertEquals(result, 0);
+		for (String output : outputs) {
+			assertEquals(true, new File(dir, output).exists(), output);
+		}
+	}
+
+	@Test
+	void testProps() throws IOException {
+		URL url = CliTest.class.getResource("53392633_bldg_6697_op2.gml");
+		String path = url.getFile();
+		File allDir = Files.createTempDirectory("citywalker").toFile();
+		File propsDir = Files.createTempDirectory("citywalker").toFile();
+		int result = new CommandLine(new Cli()).execute("-t=geojson", "-o=" + allDir.getAbsolutePath(), path);
+		assertEquals(result, 0);
+		result = new CommandLine(new Cli()).execute("-t=geojson", "-p=class", "-o=" + propsDir.getAbsolutePath(), path);
+		assertEquals(result, 0);
+		String all = new String(Files.readAllBytes(new File(allDir, "53392633_bldg_6697_op2.json").toPath()),
+				StandardCharsets.UTF_8);
+		String props = new String(Files.readAllBytes(new File(propsDir, "53392633_bldg_6697_op2.json").toPath()),
+				StandardCharsets.UTF_8);
+		for (String name : new String[] { "class", "measuredHeight", "id" }) {
+			assertEquals(true, props.contains("\"" + name + "\":"), name);
+		}
+		int skipped = 0;
+		for (String name : new String[] { "usage", "storeysAboveGround", "yearOfConstruction", "roofType" }) {
+			if (all.contains("\"" + name + "\":")) {
+				assertEquals(false, props.contains("\"" + name + "\":"), name);
+				skipped++;
+			}
+		}
+		assertNotEquals(0, skipped);
+	}
+
+	@Test
+	void testManifest() throws IOException {
+		File dir = Files.createTempDirectory("citywalker").toFile();
+		File input = new File(dir, "a b=c.gml");
+		File output = new File(dir, "a b=c.json");
+		Files.write(input.toPath(), "<gml/>".getBytes(StandardCharsets.UTF_8));
+		Files.write(output.toPath(), "{}".getBytes(StandardCharsets.UTF_8));
+
+		// an update survives without save, as if the run had been killed
+		Manifest manifest = new Manifest(dir);
+		manifest.update(input.toPath(), "x");
+		assertTrue(new Manifest(dir).isCurrent(input.toPath(), output, "x"));
+		assertFalse(new Manifest(dir).isCurrent(input.toPath(), output, "y"));
+
+		manifest.update(input.toPath(), "y");
+		assertTrue(new Manifest(dir).isCurrent(input.toPath(), output, "y"));
+		manifest.save();
+		assertTrue(new Manifest(dir).isCurrent(input.toPath(), output, "y"));
+		assertEquals(1, Files.readAllLines(new File(dir, Manifest.FILE_NAME).toPath()).stream()
+				.filter(line -> !line.startsWith("#")).count());
+	}
+
+	@Test
+	void test11() throws IOException {
+		URL url = CliTest.class.getResource("53392633_bldg_6697_op2.gml");
+		String path = url.getFile();
+		File jaxbDir = Files.createTempDirectory("citywalker").toFile();
+		File staxDir = Files.createTempDirectory("citywalker").toFile();
+		int result = new CommandLine(new Cli()).execute("-t=geojson", "-n", "-o=" + jaxbDir.getAbsolutePath(), path);
+		assertEquals(result, 0);
+		result = new CommandLine(new Cli()).execute("-t=geojson", "-n", "-e=stax", "-o=" + staxDir.getAbsolutePath(),
+				path);
+		assertEquals(result, 0);
+		byte[] expected = Files.readAllBytes(new File(jaxbDir, "53392633_bldg_6697_op2.json").toPath());
+		byte[] actual = Files.readAllBytes(new File(staxDir, "53392633_bldg_6697_op2.json").toPath());
+		assertEquals(new String(expected, StandardCharsets.UTF_8), new String(actual, StandardCharsets.UTF_8));
+	}
+
 }
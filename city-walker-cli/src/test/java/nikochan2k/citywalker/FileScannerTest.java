@@ -0,0 +1,124 @@
+package nikochan2k.citywalker;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileScannerTest {
+
+	@TempDir
+	Path dir;
+
+	private void create(String... names) throws IOException {
+		for (String name : names) {
+			Path path = dir.resolve(name);
+			Files.createDirectories(path.getParent());
+			Files.createFile(path);
+		}
+	}
+
+	private List<String> scan(String glob) throws IOException {
+		List<String> found = new ArrayList<>();
+		FileScanner scanner = new FileScanner(FileSystems.getDefault(), file -> found
+				.add(dir.relativize(file.getAbsoluteFile().toPath().normalize()).toString().replace(File.separatorChar, '/')));
+		scanner.scan(glob);
+		Collections.sort(found);
+		return found;
+	}
+
+	private String under(String pattern) {
+		return dir.toAbsolutePath() + File.separator + pattern;
+	}
+
+	@Test
+	void testAbsoluteAndRelative() throws IOException {
+		create("x/b.gml", "x/y/c.gml");
+		assertEquals(Arrays.asList("x/b.gml"), scan(under("x/*.gml")));
+		assertEquals(Arrays.asList("x/b.gml"), scan(under("x/b.gml")));
+		assertEquals(Collections.emptyList(), scan(under("x/missing.gml")));
+
+		Path relative = Paths.get("").toAbsolutePath().relativize(dir.toAbsolutePath());
+		assertEquals(Arrays.asList("x/b.gml"), scan(relative + File.separator + "x" + File.separator + "*.gml"));
+		assertEquals(Arrays.asList("x/b.gml", "x/y/c.gml"), scan(relative + "/x/**/*.gml"));
+	}
+
+	@Test
+	void testAnyDirectories() throws IOException {
+		create("a.gml", "x/b.gml", "x/y/c.gml", "x/e.txt", "z/d.gml");
+		// **/ also matches no directory at all
+		assertEquals(Arrays.asList("a.gml", "x/b.gml", "x/y/c.gml", "z/d.gml"), scan(under("**/*.gml")));
+		assertEquals(Arrays.asList("x/b.gml", "x/y/c.gml"), scan(under("x/**/*.gml")));
+		assertEquals(Arrays.asList("x/y/c.gml"), scan(under("**/y/*.gml")));
+		assertEquals(Arrays.asList("x/y/c.gml"), scan(under("x/**/y/**/*.gml")));
+	}
+
+	@Test
+	void testLinks() throws IOException {
+		create("x/b.gml", "x/y/c.gml", "z/d.gml");
+		Files.createSymbolicLink(dir.resolve("z/loop"), dir.resolve("z"));
+		List<LogRecord> records = new ArrayList<>();
+		Handler handler = new Handler() {
+			@Override
+			public void close() {
+			}
+
+			@Override
+			public void flush() {
+			}
+
+			@Override
+			public void publish(LogRecord record) {
+				records.add(record);
+			}
+		};
+		Logger logger = Logger.getLogger(FileScanner.class.getName());
+		Level level = logger.getLevel();
+		logger.setLevel(Level.FINE);
+		logger.addHandler(handler);
+		try {
+			// the cycle through z/loop is reported once and every file is found once
+			assertEquals(Arrays.asList("x/b.gml", "x/y/c.gml", "z/d.gml"), scan(under("**/*.gml")));
+			assertEquals(1, records.size());
+			assertEquals(Level.FINE, records.get(0).getLevel());
+
+			records.clear();
+			assertEquals(Arrays.asList("x/y/c.gml"), scan(under("*/*/*.gml")));
+			assertEquals(1, records.size());
+
+			// z does not match the first segment, so the cycle is never entered
+			records.clear();
+			assertEquals(Arrays.asList("x/y/c.gml"), scan(under("x/*/*.gml")));
+			assertEquals(Collections.emptyList(), records);
+		} finally {
+			logger.removeHandler(handler);
+			logger.setLevel(level);
+		}
+	}
+
+	@Test
+	void testSegments() throws IOException {
+		create("a.gml", "x/b.gml", "x/y/c.gml", "xx/f.gml", "z/d.gml");
+		assertEquals(Arrays.asList("x/b.gml"), scan(under("x/*.gml")));
+		assertEquals(Arrays.asList("x/b.gml", "xx/f.gml"), scan(under("x*/*.gml")));
+		assertEquals(Arrays.asList("x/y/c.gml"), scan(under("x/?/*.gml")));
+		assertEquals(Arrays.asList("a.gml"), scan(under("*.gml")));
+		assertEquals(Arrays.asList("x/b.gml", "z/d.gml"), scan(under("{x,z}/*.gml")));
+	}
+
+}
@@ -0,0 +1,113 @@
+package nikochan2k.citywalker;
+
+import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+class AccessorPlan {
+
+	private static final Logger LOGGER = Logger.getLogger(AccessorPlan.class.getName());
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+	private static final ClassValue<AccessorPlan> PLANS = new ClassValue<AccessorPlan>() {
+		@Override
+		protected AccessorPlan computeValue(Class<?> type) {
+			return new AccessorPlan(type);
+		}
+	};
+
+	private static final ClassValue<Optional<MethodHandle>> VALUE_GETTERS = new ClassValue<Optional<MethodHandle>>() {
+		@Override
+		protected Optional<MethodHandle> computeValue(Class<?> type) {
+			try {
+				Method method = type.getMethod("getValue");
+				method.setAccessible(true);
+				return Optional.of(MethodHandles.lookup().unreflect(method).asType(GETTER_TYPE));
+			} catch (NoSuchMethodException e) {
+				return Optional.empty();
+			} catch (IllegalAccessException | RuntimeException e) {
+				LOGGER.fine(e.toString());
+				return Optional.empty();
+			}
+		}
+	};
+
+	static AccessorPlan of(Class<?> type) {
+		return PLANS.get(type);
+	}
+
+	// ADE classes may inherit from an abstract ADE type, but the fields of the citygml4j model itself are not attributes
+	private static boolean isModelClass(Class<?> type) {
+		String name = type.getName();
+		return name.startsWith("java.") || name.startsWith("org.citygml4j.");
+	}
+
+	private static boolean isScalar(Object value) {
+		return value instanceof String || value instanceof Number || value instanceof Boolean
+				|| value instanceof LocalDate || value instanceof URI;
+	}
+
+	private final MethodHandle[] getters;
+	private final String[] names;
+
+	private AccessorPlan(Class<?> type) {
+		List<String> names = new ArrayList<>();
+		List<MethodHandle> getters = new ArrayList<>();
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		for (Class<?> c = type; c != null && !isModelClass(c); c = c.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+				// a field hidden by a subclass is not read
+				if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic() || names.contains(field.getName())) {
+					continue;
+				}
+				try {
+					field.setAccessible(true);
+					getters.add(lookup.unreflectGetter(field).asType(GETTER_TYPE));
+					names.add(field.getName());
+				} catch (IllegalAccessException | RuntimeException e) {
+					LOGGER.fine(e.toString());
+				}
+			}
+		}
+		this.names = names.toArray(new String[names.size()]);
+		this.getters = getters.toArray(new MethodHandle[getters.size()]);
+	}
+
+	void collect(Object obj, PropertyFilter filter, Map<String, Serializable> props) {
+		for (int i = 0; i < names.length; i++) {
+			String name = names[i];
+			if (!filter.accept(name)) {
+				continue;
+			}
+			try {
+				Object value = (Object) getters[i].invokeExact(obj);
+				if (value == null) {
+					continue;
+				}
+				Optional<MethodHandle> getValue = VALUE_GETTERS.get(value.getClass());
+				if (getValue.isPresent()) {
+					value = (Object) getValue.get().invokeExact(value);
+				}
+				if (isScalar(value)) {
+					props.put(name, (Serializable) value);
+				}
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				LOGGER.fine(e.toString());
+			}
+		}
+	}
+
+}
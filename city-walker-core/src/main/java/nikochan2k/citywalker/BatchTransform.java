@@ -0,0 +1,91 @@
+package nikochan2k.citywalker;
+
+import java.util.Objects;
+import java.util.logging.Logger;
+
+import org.locationtech.proj4j.CoordinateReferenceSystem;
+import org.locationtech.proj4j.CoordinateTransform;
+import org.locationtech.proj4j.ProjCoordinate;
+import org.locationtech.proj4j.datum.Datum;
+import org.locationtech.proj4j.datum.Ellipsoid;
+import org.locationtech.proj4j.proj.LongLatProjection;
+
+public class BatchTransform {
+
+	private static final Logger LOGGER = Logger.getLogger(BatchTransform.class.getName());
+
+	// parameters that change coordinates without being part of the datum
+	private static final String[] NON_DATUM_PARAMETERS = { "+axis=", "+pm=", "+to_meter=", "+units=" };
+	// proj4j's tolerance for ellipsoids treated as equal, e.g. GRS80 and WGS84
+	private static final double ELLIPSOID_E2_TOLERANCE = 0.000000000050;
+
+	private static String getParameter(CoordinateReferenceSystem crs, String key) {
+		String[] params = crs.getParameters();
+		if (params == null) {
+			return null;
+		}
+		for (String param : params) {
+			if (param.startsWith(key)) {
+				return param.substring(key.length());
+			}
+		}
+		return null;
+	}
+
+	static boolean isIdentity(CoordinateReferenceSystem source, CoordinateReferenceSystem target) {
+		if (!(source.getProjection() instanceof LongLatProjection)
+				|| !(target.getProjection() instanceof LongLatProjection)) {
+			return false;
+		}
+		Datum sourceDatum = source.getDatum();
+		Datum targetDatum = target.getDatum();
+		if (sourceDatum == null || targetDatum == null || !sourceDatum.isEqual(targetDatum)
+				|| !targetDatum.isEqual(sourceDatum)) {
+			return false;
+		}
+		// Datum.isEqual compares the transform type and towgs84 parameters, but not the ellipsoid
+		Ellipsoid sourceEllipsoid = sourceDatum.getEllipsoid();
+		Ellipsoid targetEllipsoid = targetDatum.getEllipsoid();
+		if (sourceEllipsoid == null || targetEllipsoid == null
+				|| sourceEllipsoid.getEquatorRadius() != targetEllipsoid.getEquatorRadius()
+				|| ELLIPSOID_E2_TOLERANCE < Math.abs(
+						sourceEllipsoid.getEccentricitySquared() - targetEllipsoid.getEccentricitySquared())) {
+			return false;
+		}
+		for (String key : NON_DATUM_PARAMETERS) {
+			if (!Objects.equals(getParameter(source, key), getParameter(target, key))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private final CoordinateTransform ct;
+	private final ProjCoordinate src = new ProjCoordinate();
+	private final ProjCoordinate dst = new ProjCoordinate();
+
+	BatchTransform(CoordinateTransform ct) {
+		this.ct = ct;
+	}
+
+	public int transform(double[] coords, int count) {
+		int w = 0;
+		for (int r = 0, end = count * 3; r < end; r += 3) {
+			src.x = coords[r];
+			src.y = coords[r + 1];
+			src.z = Double.NaN;
+			try {
+				ct.transform(src, dst);
+			} catch (RuntimeException e) {
+				LOGGER.warning(e.toString());
+				continue;
+			}
+			coords[w] = dst.x;
+			coords[w + 1] = dst.y;
+			coords[w + 2] = coords[r + 2];
+			w += 3;
+		}
+		return w / 3;
+	}
+
+}
@@ -0,0 +1,75 @@
+package nikochan2k.citywalker;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+public class Compression {
+
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	public static final Compression NONE = new Compression(null, 0);
+
+	public static Compression gzip(int level) {
+		// 0 would write stored blocks and -1 hides the level zlib picks, so only 1 to 9
+		if (level < Deflater.BEST_SPEED || Deflater.BEST_COMPRESSION < level) {
+			throw new IllegalArgumentException("Invalid compression level: " + level + " (1 to 9)");
+		}
+		return new Compression("gzip", level);
+	}
+
+	public static Compression parse(String name, int level) {
+		switch (name.trim().toLowerCase(Locale.ROOT)) {
+		case "none":
+			return NONE;
+		case "gz":
+		case "gzip":
+			return gzip(level);
+		default:
+			throw new IllegalArgumentException("Unknown compression: " + name);
+		}
+	}
+
+	private final String format;
+	private final int level;
+
+	private Compression(String format, int level) {
+		this.format = format;
+		this.level = level;
+	}
+
+	public String getExtension() {
+		return format == null ? "" : ".gz";
+	}
+
+	public String getFormat() {
+		return format == null ? "none" : format;
+	}
+
+	public int getLevel() {
+		return level;
+	}
+
+	public OutputStream open(File file) throws IOException {
+		OutputStream os = new FileOutputStream(file);
+		if (format == null) {
+			return new BufferedOutputStream(os, BUFFER_SIZE);
+		}
+		try {
+			return new GZIPOutputStream(new BufferedOutputStream(os, BUFFER_SIZE), 65536) {
+				{
+					def.setLevel(level);
+				}
+			};
+		} catch (IOException | RuntimeException e) {
+			os.close();
+			throw e;
+		}
+	}
+
+}
@@ -1,12 +1,13 @@
 package nikochan2k.citywalker;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
 
 public abstract class Converter extends Processor {
 
-	protected final File output;
-
-	protected Converter(File input, File outputDir) {
+	public static File getOutput(File input, File outputDir, String extension) {
 		String fileName = input.getName();
 		int lastIndex = fileName.lastIndexOf('.');
 		String baseName;
@@ -15,14 +16,37 @@ public abstract class Converter extends Processor {
 		} else {
 			baseName = fileName;
 		}
-		String outName = baseName + getExtension();
-		if (outputDir != null) {
-			this.output = new File(outputDir, outName);
+		String outName = baseName + extension;
+		if (outputDir != null && !isInside(input, outputDir)) {
+			return new File(outputDir, outName);
 		} else {
-			this.output = new File(input.getParent(), outName);
+			return new File(input.getParent(), outName);
 		}
 	}
 
+	// inputs already placed under the output directory, like archive entries, keep their folders
+	private static boolean isInside(File input, File outputDir) {
+		Path dir = outputDir.getAbsoluteFile().toPath().normalize();
+		Path parent = input.getAbsoluteFile().toPath().normalize().getParent();
+		return parent != null && !parent.equals(dir) && parent.startsWith(dir);
+	}
+
+	protected final File output;
+	private final Compression compression;
+
+	protected Converter(File input, File outputDir) {
+		this(input, outputDir, Compression.NONE);
+	}
+
+	protected Converter(File input, File outputDir, Compression compression) {
+		this.compression = compression;
+		this.output = getOutput(input, outputDir, getExtension() + compression.getExtension());
+	}
+
 	protected abstract String getExtension();
 
+	protected OutputStream openOutput() throws IOException {
+		return compression.open(output);
+	}
+
 }
@@ -0,0 +1,97 @@
+package nikochan2k.citywalker;
+
+public final class DecimalParser {
+
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	public static double parse(char[] chars, int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+			negative = chars[i] == '-';
+			i++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		int mark = i;
+		for (; i < end; i++) {
+			char c = chars[i];
+			if (c < '0' || '9' < c) {
+				break;
+			}
+			if (digits < 19) {
+				mantissa = mantissa * 10 + (c - '0');
+				if (mantissa != 0) {
+					digits++;
+				}
+			} else {
+				exponent++;
+			}
+		}
+		boolean hasDigits = mark < i;
+		if (i < end && chars[i] == '.') {
+			i++;
+			mark = i;
+			for (; i < end; i++) {
+				char c = chars[i];
+				if (c < '0' || '9' < c) {
+					break;
+				}
+				if (digits < 19) {
+					mantissa = mantissa * 10 + (c - '0');
+					if (mantissa != 0) {
+						digits++;
+					}
+					exponent--;
+				}
+			}
+			hasDigits |= mark < i;
+		}
+		if (hasDigits && i < end && (chars[i] == 'e' || chars[i] == 'E')) {
+			i++;
+			boolean negativeExponent = false;
+			if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+				negativeExponent = chars[i] == '-';
+				i++;
+			}
+			mark = i;
+			int value = 0;
+			for (; i < end; i++) {
+				char c = chars[i];
+				if (c < '0' || '9' < c || 100000 < value) {
+					break;
+				}
+				value = value * 10 + (c - '0');
+			}
+			if (mark == i) {
+				return slowParse(chars, start, end);
+			}
+			exponent += negativeExponent ? -value : value;
+		}
+		if (!hasDigits || i != end || 19 <= digits || MAX_EXACT_MANTISSA < mantissa) {
+			return slowParse(chars, start, end);
+		}
+		double value;
+		if (mantissa == 0) {
+			value = 0.0;
+		} else if (0 <= exponent && exponent < POWERS_OF_TEN.length) {
+			value = mantissa * POWERS_OF_TEN[exponent];
+		} else if (exponent < 0 && -exponent < POWERS_OF_TEN.length) {
+			value = mantissa / POWERS_OF_TEN[-exponent];
+		} else {
+			return slowParse(chars, start, end);
+		}
+		return negative ? -value : value;
+	}
+
+	private static double slowParse(char[] chars, int start, int end) {
+		return Double.parseDouble(new String(chars, start, end - start));
+	}
+
+	private DecimalParser() {
+	}
+
+}
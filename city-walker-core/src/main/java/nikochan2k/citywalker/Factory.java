@@ -1,21 +1,37 @@
 package nikochan2k.citywalker;
 
 import java.io.File;
+import java.io.IOException;
 
 public abstract class Factory {
 
+	private Compression compression = Compression.NONE;
 	private boolean flipXY;
 	private String inputSRS;
 	private boolean noAttributes;
 	private File outputDir;
 	private String outputSRS;
+	private PropertyFilter propertyFilter = PropertyFilter.ALL;
+	private boolean streaming;
+	private int workers = 1;
 
 	public abstract Processor createProcessor(File input, String srs);
 
+	public void finish() throws IOException {
+	}
+
+	public Compression getCompression() {
+		return compression;
+	}
+
 	public String getInputSRS() {
 		return inputSRS;
 	}
 
+	public File getOutput(File input) {
+		return null;
+	}
+
 	public File getOutputDir() {
 		return outputDir;
 	}
@@ -24,8 +40,16 @@ public abstract class Factory {
 		return outputSRS;
 	}
 
+	public PropertyFilter getPropertyFilter() {
+		return propertyFilter;
+	}
+
 	public abstract String getTypeName();
 
+	public int getWorkers() {
+		return workers;
+	}
+
 	public boolean isFlipXY() {
 		return flipXY;
 	}
@@ -34,6 +58,14 @@ public abstract class Factory {
 		return noAttributes;
 	}
 
+	public boolean isStreaming() {
+		return streaming;
+	}
+
+	public void setCompression(Compression compression) {
+		this.compression = compression;
+	}
+
 	public void setFlipXY(boolean flipXY) {
 		this.flipXY = flipXY;
 	}
@@ -54,4 +86,16 @@ public abstract class Factory {
 		this.outputSRS = outputSRS;
 	}
 
+	public void setPropertyFilter(PropertyFilter propertyFilter) {
+		this.propertyFilter = propertyFilter;
+	}
+
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}
+
+	public void setWorkers(int workers) {
+		this.workers = workers;
+	}
+
 }
@@ -1,7 +1,8 @@
 package nikochan2k.citywalker;
 
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,11 +22,91 @@ public class Item {
 	}
 
 	public final String id;
-	public final List<Coordinates> vertexes = new ArrayList<>();
+	public final List<Coordinates> vertexes = new AbstractList<Coordinates>() {
+
+		@Override
+		public boolean add(Coordinates coords) {
+			addVertex(coords.x, coords.y, coords.z);
+			return true;
+		}
+
+		@Override
+		public Coordinates get(int index) {
+			if (index < 0 || vertexCount <= index) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + vertexCount);
+			}
+			int i = index * 3;
+			return new Coordinates(coordinates[i], coordinates[i + 1], coordinates[i + 2]);
+		}
+
+		@Override
+		public int size() {
+			return vertexCount;
+		}
+
+	};
 	public final Map<String, Serializable> props = new LinkedHashMap<>();
 
+	double[] coordinates = new double[3 * 16];
+	int vertexCount;
+
 	public Item(String id) {
 		this.id = id;
 	}
 
+	public void addVertex(double x, double y, double z) {
+		int i = vertexCount * 3;
+		ensureCapacity(vertexCount + 1);
+		coordinates[i] = x;
+		coordinates[i + 1] = y;
+		coordinates[i + 2] = z;
+		vertexCount++;
+	}
+
+	void ensureCapacity(int vertexes) {
+		if (coordinates.length < vertexes * 3) {
+			coordinates = Arrays.copyOf(coordinates, Math.max(vertexes * 3, coordinates.length * 2));
+		}
+	}
+
+	// grows minX, minY, maxX, maxY to cover this item
+	public void expandBounds(double[] bounds) {
+		for (int i = 0, end = vertexCount * 3; i < end; i += 3) {
+			bounds[0] = Math.min(bounds[0], coordinates[i]);
+			bounds[1] = Math.min(bounds[1], coordinates[i + 1]);
+			bounds[2] = Math.max(bounds[2], coordinates[i]);
+			bounds[3] = Math.max(bounds[3], coordinates[i + 1]);
+		}
+	}
+
+	// minX, minY, maxX, maxY, or an inverted box when there are no vertexes
+	public double[] getBounds(double[] bounds) {
+		bounds[0] = Double.POSITIVE_INFINITY;
+		bounds[1] = Double.POSITIVE_INFINITY;
+		bounds[2] = Double.NEGATIVE_INFINITY;
+		bounds[3] = Double.NEGATIVE_INFINITY;
+		expandBounds(bounds);
+		return bounds;
+	}
+
+	public double[] getCoordinates() {
+		return coordinates;
+	}
+
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	public double getX(int index) {
+		return coordinates[index * 3];
+	}
+
+	public double getY(int index) {
+		return coordinates[index * 3 + 1];
+	}
+
+	public double getZ(int index) {
+		return coordinates[index * 3 + 2];
+	}
+
 }
@@ -0,0 +1,303 @@
+package nikochan2k.citywalker;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.logging.Logger;
+
+public class ItemSpool implements Closeable {
+
+	public enum Type {
+		BOOLEAN, INTEGER, LONG, DOUBLE, DATE, STRING;
+
+		public static Type of(Serializable value) {
+			if (value instanceof Boolean) {
+				return BOOLEAN;
+			}
+			if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+				return INTEGER;
+			}
+			if (value instanceof Long) {
+				return LONG;
+			}
+			if (value instanceof Number) {
+				return DOUBLE;
+			}
+			if (value instanceof LocalDate) {
+				return DATE;
+			}
+			return STRING;
+		}
+
+		public Type union(Type other) {
+			if (other == null || other == this) {
+				return this;
+			}
+			if (isNumber() && other.isNumber()) {
+				return ordinal() < other.ordinal() ? other : this;
+			}
+			return STRING;
+		}
+
+		private boolean isNumber() {
+			return this == INTEGER || this == LONG || this == DOUBLE;
+		}
+	}
+
+	public interface Visitor {
+		void visit(long position, Item item) throws IOException;
+	}
+
+	private static class RecordWriter extends ByteArrayOutputStream {
+
+		private final DataOutputStream data = new DataOutputStream(this);
+
+		RecordWriter() {
+			super(256);
+		}
+
+		void writeByte(int v) throws IOException {
+			data.writeByte(v);
+		}
+
+		void writeDouble(double v) throws IOException {
+			data.writeDouble(v);
+		}
+
+		void writeInt(int v) throws IOException {
+			data.writeInt(v);
+		}
+
+		void writeLong(long v) throws IOException {
+			data.writeLong(v);
+		}
+
+		void writeString(String s) throws IOException {
+			if (s == null) {
+				data.writeInt(-1);
+				return;
+			}
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			data.writeInt(bytes.length);
+			data.write(bytes);
+		}
+
+	}
+
+	private static final Logger LOGGER = Logger.getLogger(ItemSpool.class.getName());
+
+	private static Item decode(ByteBuffer buffer) {
+		Item item = new Item(readString(buffer));
+		int vertexCount = buffer.getInt();
+		item.ensureCapacity(vertexCount);
+		for (int i = 0, end = vertexCount * 3; i < end; i++) {
+			item.coordinates[i] = buffer.getDouble();
+		}
+		item.vertexCount = vertexCount;
+		Map<String, Serializable> props = item.props;
+		for (int i = 0, size = buffer.getInt(); i < size; i++) {
+			String name = readString(buffer);
+			Type type = Type.values()[buffer.get()];
+			switch (type) {
+			case BOOLEAN:
+				props.put(name, buffer.get() != 0);
+				break;
+			case INTEGER:
+				props.put(name, buffer.getInt());
+				break;
+			case LONG:
+				props.put(name, buffer.getLong());
+				break;
+			case DOUBLE:
+				props.put(name, buffer.getDouble());
+				break;
+			case DATE:
+				props.put(name, LocalDate.ofEpochDay(buffer.getLong()));
+				break;
+			default:
+				props.put(name, readString(buffer));
+				break;
+			}
+		}
+		return item;
+	}
+
+	public static void deleteTempFile(File file) {
+		if (file != null && !file.delete() && file.exists()) {
+			LOGGER.fine("Could not delete " + file.getAbsolutePath());
+		}
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0) {
+			return null;
+		}
+		int offset = buffer.arrayOffset() + buffer.position();
+		String s = new String(buffer.array(), offset, length, StandardCharsets.UTF_8);
+		buffer.position(buffer.position() + length);
+		return s;
+	}
+
+	private final File file;
+	private final Map<String, Type> schema = new LinkedHashMap<>();
+	private final ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+	private final RecordWriter record = new RecordWriter();
+	private ByteBuffer buffer = ByteBuffer.allocate(8192);
+	private FileChannel channel;
+	private int count;
+	private int lastLength;
+	private DataOutputStream out;
+	private long position;
+
+	public ItemSpool() throws IOException {
+		file = File.createTempFile("citywalker", ".spool");
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+	}
+
+	public long append(Item item) throws IOException {
+		if (out == null) {
+			throw new IllegalStateException("Spool is already being read");
+		}
+		record.reset();
+		record.writeString(item.id);
+		record.writeInt(item.vertexCount);
+		for (int i = 0, end = item.vertexCount * 3; i < end; i++) {
+			record.writeDouble(item.coordinates[i]);
+		}
+		int size = 0;
+		for (Serializable value : item.props.values()) {
+			if (value != null) {
+				size++;
+			}
+		}
+		record.writeInt(size);
+		for (Entry<String, Serializable> entry : item.props.entrySet()) {
+			Serializable value = entry.getValue();
+			if (value == null) {
+				continue;
+			}
+			String name = entry.getKey();
+			Type type = Type.of(value);
+			schema.merge(name, type, Type::union);
+			record.writeString(name);
+			record.writeByte(type.ordinal());
+			switch (type) {
+			case BOOLEAN:
+				record.writeByte(((Boolean) value) ? 1 : 0);
+				break;
+			case INTEGER:
+				record.writeInt(((Number) value).intValue());
+				break;
+			case LONG:
+				record.writeLong(((Number) value).longValue());
+				break;
+			case DOUBLE:
+				record.writeDouble(((Number) value).doubleValue());
+				break;
+			case DATE:
+				record.writeLong(((LocalDate) value).toEpochDay());
+				break;
+			default:
+				// same text as the GeoJSON output
+				record.writeString(value instanceof URI ? ((URI) value).toASCIIString() : value.toString());
+				break;
+			}
+		}
+
+		long start = position;
+		out.writeInt(record.size());
+		record.writeTo(out);
+		position += 4 + record.size();
+		count++;
+		return start;
+	}
+
+	@Override
+	public void close() {
+		try {
+			if (out != null) {
+				out.close();
+				out = null;
+			}
+			if (channel != null) {
+				channel.close();
+				channel = null;
+			}
+		} catch (IOException e) {
+			LOGGER.warning(e.toString());
+		}
+		deleteTempFile(file);
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public Map<String, Type> getSchema() {
+		return Collections.unmodifiableMap(schema);
+	}
+
+	private void openChannel() throws IOException {
+		if (channel != null) {
+			return;
+		}
+		out.close();
+		out = null;
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+	}
+
+	public Item read(long position) throws IOException {
+		openChannel();
+		lengthBuffer.clear();
+		readFully(lengthBuffer, position);
+		lengthBuffer.flip();
+		int length = lengthBuffer.getInt();
+		lastLength = length;
+		if (buffer.capacity() < length) {
+			buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2));
+		}
+		buffer.clear();
+		buffer.limit(length);
+		readFully(buffer, position + 4);
+		buffer.flip();
+		return decode(buffer);
+	}
+
+	private void readFully(ByteBuffer dst, long position) throws IOException {
+		while (dst.hasRemaining()) {
+			int n = channel.read(dst, position);
+			if (n < 0) {
+				throw new EOFException(file.getAbsolutePath());
+			}
+			position += n;
+		}
+	}
+
+	public void scan(Visitor visitor) throws IOException {
+		openChannel();
+		long current = 0;
+		while (current < position) {
+			Item item = read(current);
+			visitor.visit(current, item);
+			current += 4 + lastLength;
+		}
+	}
+
+}
@@ -1,25 +1,25 @@
 package nikochan2k.citywalker;
 
 import java.io.File;
+import java.io.InputStream;
 import java.io.Serializable;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.citygml4j.CityGMLContext;
 import org.citygml4j.ade.iur.UrbanRevitalizationADEContext;
 import org.citygml4j.builder.jaxb.CityGMLBuilder;
+import org.citygml4j.builder.jaxb.CityGMLBuilderException;
 import org.citygml4j.model.citygml.CityGML;
 import org.citygml4j.model.citygml.CityGMLClass;
 import org.citygml4j.model.citygml.ade.ADEComponent;
@@ -55,18 +55,12 @@ import org.citygml4j.model.gml.geometry.primitives.SurfaceProperty;
 import org.citygml4j.model.gml.measures.Length;
 import org.citygml4j.xml.io.CityGMLInputFactory;
 import org.citygml4j.xml.io.reader.CityGMLReader;
-import org.locationtech.proj4j.CRSFactory;
+import org.citygml4j.xml.io.reader.FeatureReadMode;
 import org.locationtech.proj4j.CoordinateReferenceSystem;
-import org.locationtech.proj4j.CoordinateTransform;
-import org.locationtech.proj4j.CoordinateTransformFactory;
-import org.locationtech.proj4j.ProjCoordinate;
-
-import nikochan2k.citywalker.Item.Coordinates;
 
 public class Parser {
 
 	private static final Logger LOGGER = Logger.getLogger(Parser.class.getName());
-	private static final Pattern SRS_LIKE = Pattern.compile("\\d{4,}");
 
 	static {
 		CityGMLContext ctx = CityGMLContext.getInstance();
@@ -77,35 +71,58 @@ public class Parser {
 		}
 	}
 
-	private final CRSFactory crsFactory = new CRSFactory();
-	private final CoordinateTransformFactory ctFactory = new CoordinateTransformFactory();
-	private final Factory factory;
+	private static CityGMLBuilder builder;
+
+	private final TransformCache cache = TransformCache.getInstance();
+	private ExecutorService executor;
+	protected final Factory factory;
+	private CityGMLInputFactory inputFactory;
 	private CoordinateReferenceSystem inputCRS;
 	private CoordinateReferenceSystem outputCRS;
 
 	public Parser(Factory factory) {
 		this.factory = factory;
 		if (factory.getInputSRS() != null) {
-			try {
-				inputCRS = crsFactory.createFromName(factory.getInputSRS());
-			} catch (RuntimeException e) {
-				LOGGER.warning(e.toString());
+			inputCRS = cache.getCRS(factory.getInputSRS());
+			if (inputCRS == null) {
+				LOGGER.warning("Unknown SRS: " + factory.getInputSRS());
 			}
 		}
 		if (factory.getOutputSRS() != null) {
-			try {
-				outputCRS = crsFactory.createFromName(factory.getOutputSRS());
-			} catch (RuntimeException e) {
-				LOGGER.warning(e.toString());
+			outputCRS = cache.getCRS(factory.getOutputSRS());
+			if (outputCRS == null) {
+				LOGGER.warning("Unknown SRS: " + factory.getOutputSRS());
 			}
 		}
 
 		if (outputCRS == null) {
-			outputCRS = crsFactory.createFromName("EPSG:4326");
+			outputCRS = cache.getCRS("EPSG:4326");
+		}
+	}
+
+	static double getArea(double[] coords, int vertexCount) {
+		double minX = Double.MAX_VALUE, maxX = 0, minY = Double.MAX_VALUE, maxY = 0;
+		for (int i = 0, end = vertexCount * 3; i < end; i += 3) {
+			double x = coords[i];
+			double y = coords[i + 1];
+			minX = Math.min(minX, x);
+			maxX = Math.max(maxX, x);
+			minY = Math.min(minY, y);
+			maxY = Math.max(maxY, y);
+		}
+		double diffX = maxX - minX;
+		double diffY = maxY - minY;
+		return diffX * diffY;
+	}
+
+	static synchronized CityGMLBuilder getBuilder() throws CityGMLBuilderException {
+		if (builder == null) {
+			builder = CityGMLContext.getInstance().createCityGMLBuilder();
 		}
+		return builder;
 	}
 
-	private Item createItem(Building b, CoordinateTransform ct) {
+	private Item createItem(Building b, CoordinateReferenceSystem sourceCRS) {
 		Polygon polygon = getPolygon(b.getLod0FootPrint());
 		if (polygon == null)
 			polygon = getPolygon(b.getLod0RoofEdge());
@@ -114,97 +131,82 @@ public class Parser {
 		if (polygon == null) {
 			return null;
 		}
-		Exterior ex = (Exterior) polygon.getExterior();
-		LinearRing lr = (LinearRing) ex.getRing();
-		DirectPositionList dpl = (DirectPositionList) lr.getPosList();
-		List<Double> dl;
-		if (dpl != null) {
-			dl = dpl.toList3d();
-		} else {
-			dl = new ArrayList<>();
-			List<PosOrPointPropertyOrPointRep> list = lr.getPosOrPointPropertyOrPointRep();
-			if (list == null) {
-				return null;
-			}
-			for (PosOrPointPropertyOrPointRep item : list) {
-				DirectPosition dp = item.getPos();
-				if (dp == null) {
-					continue;
-				}
-				dl.addAll(dp.getValue());
-			}
-		}
-		if (dl.size() == 0) {
-			return null;
-		}
 		Item item = new Item(b.getId());
-		for (int i = 0, end = dl.size(); i < end; i += 3) {
-			try {
-				double x = dl.get(i);
-				double y = dl.get(i + 1);
-				double z = dl.get(i + 2);
-				if (factory.isFlipXY()) {
-					double tmp = x;
-					x = y;
-					y = tmp;
-				}
-				if (ct != null) {
-					ProjCoordinate result = new ProjCoordinate();
-					ct.transform(new ProjCoordinate(x, y), result);
-					x = result.x;
-					y = result.y;
-				}
-				Coordinates coords = new Coordinates(x, y, z);
-				item.vertexes.add(coords);
-			} catch (RuntimeException e) {
-				LOGGER.warning(e.toString());
-			}
+		readRing(polygon, item);
+		if (item.vertexCount == 0) {
+			return null;
 		}
+		project(item, sourceCRS);
+
 		Map<String, Serializable> props = item.props;
-		Length length = b.getMeasuredHeight();
-		if (length != null) {
-			props.put("measuredHeight", length.getValue());
+		PropertyFilter filter = factory.getPropertyFilter();
+		if (filter.accept("measuredHeight")) {
+			Length length = b.getMeasuredHeight();
+			if (length != null) {
+				props.put("measuredHeight", length.getValue());
+			}
 		}
 
 		if (!factory.isNoAttributes()) {
-			String id = b.getId();
-			if (id != null) {
-				props.put("id", id);
+			if (filter.accept("id")) {
+				String id = b.getId();
+				if (id != null) {
+					props.put("id", id);
+				}
 			}
-			Code clazz = b.getClazz();
-			if (clazz != null) {
-				props.put("class", b.getClazz().getValue());
+			if (filter.accept("class")) {
+				Code clazz = b.getClazz();
+				if (clazz != null) {
+					props.put("class", b.getClazz().getValue());
+				}
 			}
-			List<Code> function = b.getFunction();
-			if (function != null && 0 < function.size()) {
-				props.put("function", joinCodes(function));
+			if (filter.accept("function")) {
+				List<Code> function = b.getFunction();
+				if (function != null && 0 < function.size()) {
+					props.put("function", joinCodes(function));
+				}
 			}
-			List<Code> usage = b.getUsage();
-			if (usage != null && 0 < usage.size()) {
-				props.put("usage", joinCodes(usage));
+			if (filter.accept("usage")) {
+				List<Code> usage = b.getUsage();
+				if (usage != null && 0 < usage.size()) {
+					props.put("usage", joinCodes(usage));
+				}
 			}
-			LocalDate yearOfConstruction = b.getYearOfConstruction();
-			if (yearOfConstruction != null) {
-				props.put("yearOfConstruction", yearOfConstruction);
+			if (filter.accept("yearOfConstruction")) {
+				LocalDate yearOfConstruction = b.getYearOfConstruction();
+				if (yearOfConstruction != null) {
+					props.put("yearOfConstruction", yearOfConstruction);
+				}
 			}
-			LocalDate yearOfDemolition = b.getYearOfDemolition();
-			if (yearOfDemolition != null) {
-				props.put("yearOfDemolition", yearOfDemolition);
+			if (filter.accept("yearOfDemolition")) {
+				LocalDate yearOfDemolition = b.getYearOfDemolition();
+				if (yearOfDemolition != null) {
+					props.put("yearOfDemolition", yearOfDemolition);
+				}
 			}
-			Code roofType = b.getRoofType();
-			if (roofType != null) {
-				props.put("roofType", roofType.getValue());
+			if (filter.accept("roofType")) {
+				Code roofType = b.getRoofType();
+				if (roofType != null) {
+					props.put("roofType", roofType.getValue());
+				}
 			}
-			Integer storeysAboveGround = b.getStoreysAboveGround();
-			if (storeysAboveGround != null) {
-				props.put("storeysAboveGround", storeysAboveGround);
+			if (filter.accept("storeysAboveGround")) {
+				Integer storeysAboveGround = b.getStoreysAboveGround();
+				if (storeysAboveGround != null) {
+					props.put("storeysAboveGround", storeysAboveGround);
+				}
 			}
-			Integer storeysBelowGround = b.getStoreysBelowGround();
-			if (storeysBelowGround != null) {
-				props.put("storeysBelowGround", storeysBelowGround);
+			if (filter.accept("storeysBelowGround")) {
+				Integer storeysBelowGround = b.getStoreysBelowGround();
+				if (storeysBelowGround != null) {
+					props.put("storeysBelowGround", storeysBelowGround);
+				}
 			}
 			List<AbstractGenericAttribute> attributes = b.getGenericAttribute();
 			for (AbstractGenericAttribute attr : attributes) {
+				if (!filter.accept(attr.getName())) {
+					continue;
+				}
 				if (attr instanceof StringAttribute) {
 					StringAttribute sa = (StringAttribute) attr;
 					props.put(sa.getName(), sa.getValue());
@@ -237,42 +239,12 @@ public class Parser {
 				if (c instanceof ADEGenericApplicationProperty<?>) {
 					ADEGenericApplicationProperty<?> prop = (ADEGenericApplicationProperty<?>) c;
 					AssociationByRep<?> value = (AssociationByRep<?>) prop.getValue();
+					if (value == null) {
+						continue;
+					}
 					Object obj = value.getObject();
 					if (obj != null) {
-						Field[] fields = obj.getClass().getDeclaredFields();
-						outer: for (Field field : fields) {
-							try {
-								field.setAccessible(true);
-								Object unknown = field.get(obj);
-								if (unknown == null) {
-									continue;
-								}
-								Serializable s = null;
-								Method[] methods = unknown.getClass().getMethods();
-								boolean found = false;
-								for (Method method : methods) {
-									if ("getValue".equals(method.getName())) {
-										Object o = method.invoke(unknown);
-										if (o instanceof Serializable) {
-											continue outer;
-										}
-										s = (Serializable) o;
-										found = true;
-										break;
-									}
-								}
-								if (!found) {
-									if (obj instanceof Serializable) {
-										s = (Serializable) obj;
-									} else {
-										continue;
-									}
-								}
-								props.put(field.getName(), s);
-							} catch (IllegalArgumentException | IllegalAccessException | InvocationTargetException e) {
-								// Do nothing
-							}
-						}
+						AccessorPlan.of(obj.getClass()).collect(obj, filter, props);
 					}
 				}
 			}
@@ -282,38 +254,63 @@ public class Parser {
 	}
 
 	private double getArea(Polygon polygon) {
-		Exterior ex = (Exterior) polygon.getExterior();
-		LinearRing lr = (LinearRing) ex.getRing();
-		DirectPositionList dpl = (DirectPositionList) lr.getPosList();
-		List<Double> coords;
-		if (dpl != null) {
-			coords = dpl.toList3d();
-		} else {
-			coords = new ArrayList<>();
-			List<PosOrPointPropertyOrPointRep> list = lr.getPosOrPointPropertyOrPointRep();
-			if (list == null) {
-				return 0.0;
-			}
-			for (PosOrPointPropertyOrPointRep item : list) {
-				DirectPosition dp = item.getPos();
-				if (dp == null) {
-					continue;
-				}
-				coords.addAll(dp.getValue());
+		Item ring = new Item(null);
+		readRing(polygon, ring);
+		return getArea(ring.coordinates, ring.vertexCount);
+	}
+
+	// workers outlive a single file, so their per-thread transforms stay cached
+	// across files, and idle threads go away once the parser is no longer used
+	ExecutorService getExecutor() {
+		int workers = factory.getWorkers();
+		if (workers <= 1) {
+			return null;
+		}
+		if (executor == null) {
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+					new LinkedBlockingQueue<>(), r -> {
+						Thread t = new Thread(r, "city-walker-worker");
+						t.setDaemon(true);
+						return t;
+					});
+			pool.allowCoreThreadTimeOut(true);
+			executor = pool;
+		}
+		return executor;
+	}
+
+	private CityGMLInputFactory createInputFactory() throws CityGMLBuilderException {
+		CityGMLInputFactory in = getBuilder().createCityGMLInputFactory();
+		if (factory.isStreaming()) {
+			in.setProperty(CityGMLInputFactory.FEATURE_READ_MODE, FeatureReadMode.SPLIT_PER_COLLECTION_MEMBER);
+		}
+		return in;
+	}
+
+	private CityGMLInputFactory getInputFactory(Map<String, Object> props) throws CityGMLBuilderException {
+		if (!props.isEmpty()) {
+			// per-call properties must not leak into later files, the builder is still shared
+			CityGMLInputFactory in = createInputFactory();
+			for (Entry<String, Object> entry : props.entrySet()) {
+				in.setProperty(entry.getKey(), entry.getValue());
 			}
+			return in;
 		}
-		double minX = Double.MAX_VALUE, maxX = 0, minY = Double.MAX_VALUE, maxY = 0;
-		for (int i = 0, end = coords.size(); i < end; i += 3) {
-			double x = coords.get(i);
-			double y = coords.get(i + 1);
-			minX = Math.min(minX, x);
-			maxX = Math.max(maxX, x);
-			minY = Math.min(minY, y);
-			maxY = Math.max(maxY, y);
+		if (inputFactory == null) {
+			inputFactory = createInputFactory();
 		}
-		double diffX = maxX - minX;
-		double diffY = maxY - minY;
-		return diffX * diffY;
+		return inputFactory;
+	}
+
+	protected CoordinateReferenceSystem getInputCRS(String srsName) {
+		if (inputCRS != null) {
+			return inputCRS;
+		}
+		return cache.detectCRS(srsName);
+	}
+
+	protected CoordinateReferenceSystem getOutputCRS() {
+		return outputCRS;
 	}
 
 	private Polygon getPolygon(AbstractSurface surface) {
@@ -374,6 +371,63 @@ public class Parser {
 		return builder.toString();
 	}
 
+	private void readPositions(List<Double> values, int dimension, Item item) {
+		int count = values.size() / dimension;
+		item.ensureCapacity(item.vertexCount + count);
+		double[] coords = item.coordinates;
+		int w = item.vertexCount * 3;
+		for (int i = 0, end = count * dimension; i < end; i += dimension) {
+			coords[w] = values.get(i);
+			coords[w + 1] = values.get(i + 1);
+			coords[w + 2] = dimension == 2 ? 0.0 : values.get(i + 2);
+			w += 3;
+		}
+		item.vertexCount += count;
+	}
+
+	private void readRing(Polygon polygon, Item item) {
+		Exterior ex = (Exterior) polygon.getExterior();
+		LinearRing lr = (LinearRing) ex.getRing();
+		DirectPositionList dpl = (DirectPositionList) lr.getPosList();
+		if (dpl != null) {
+			List<Double> values = dpl.getValue();
+			if (values != null) {
+				Integer dimension = dpl.getSrsDimension();
+				readPositions(values, dimension != null && dimension == 2 ? 2 : 3, item);
+			}
+			return;
+		}
+		List<PosOrPointPropertyOrPointRep> list = lr.getPosOrPointPropertyOrPointRep();
+		if (list == null) {
+			return;
+		}
+		for (PosOrPointPropertyOrPointRep pos : list) {
+			DirectPosition dp = pos.getPos();
+			if (dp == null) {
+				continue;
+			}
+			List<Double> values = dp.getValue();
+			if (values != null && 2 <= values.size()) {
+				readPositions(values, values.size() == 2 ? 2 : 3, item);
+			}
+		}
+	}
+
+	protected void project(Item item, CoordinateReferenceSystem sourceCRS) {
+		if (factory.isFlipXY()) {
+			double[] coords = item.coordinates;
+			for (int i = 0, end = item.vertexCount * 3; i < end; i += 3) {
+				double tmp = coords[i];
+				coords[i] = coords[i + 1];
+				coords[i + 1] = tmp;
+			}
+		}
+		BatchTransform bt = cache.getTransform(sourceCRS, outputCRS);
+		if (bt != null) {
+			item.vertexCount = bt.transform(item.coordinates, item.vertexCount);
+		}
+	}
+
 	public void parse(File input) throws CityWalkerException {
 		HashMap<String, Object> defaultProps = new HashMap<>();
 		defaultProps.put(CityGMLInputFactory.FAIL_ON_MISSING_ADE_SCHEMA, false);
@@ -382,21 +436,26 @@ public class Parser {
 	}
 
 	public void parse(File input, Map<String, Object> props) throws CityWalkerException {
+		parse(input, null, props);
+	}
+
+	private void parse(File input, InputStream is, Map<String, Object> props) throws CityWalkerException {
 		try {
-			CityGMLContext ctx = CityGMLContext.getInstance();
-			CityGMLBuilder builder = ctx.createCityGMLBuilder();
-			CityGMLInputFactory in = builder.createCityGMLInputFactory();
-			for (Entry<String, Object> entry : props.entrySet()) {
-				in.setProperty(entry.getKey(), entry.getValue());
-			}
-			try (CityGMLReader reader = in.createCityGMLReader(input)) {
+			CityGMLInputFactory in = getInputFactory(props);
+			try (CityGMLReader reader = is == null ? in.createCityGMLReader(input)
+					: in.createCityGMLReader(input.getAbsolutePath(), is)) {
 				Processor processor = factory.createProcessor(input, outputCRS.getName());
 				LOGGER.info(String.format("Parsing \"%s\"", input.getAbsolutePath()));
-				while (reader.hasNext()) {
-					CityGML citygml = reader.nextFeature();
-					if (citygml.getCityGMLClass() == CityGMLClass.CITY_MODEL) {
-						parseCity(processor, citygml);
+				try (Pipeline pipeline = new Pipeline(processor, getExecutor(), factory.getWorkers())) {
+					while (reader.hasNext()) {
+						CityGML citygml = reader.nextFeature();
+						if (citygml.getCityGMLClass() == CityGMLClass.CITY_MODEL) {
+							parseCity(pipeline, citygml);
+						} else if (citygml.getCityGMLClass() == CityGMLClass.BUILDING) {
+							parseCityObject(pipeline, (AbstractCityObject) citygml);
+						}
 					}
+					pipeline.finish();
 				}
 				processor.finish();
 			}
@@ -405,60 +464,34 @@ public class Parser {
 		}
 	}
 
-	private void parseCity(Processor processor, CityGML citygml) {
+	public void parse(InputStream is, File input) throws CityWalkerException {
+		parse(input, is, new HashMap<String, Object>(0));
+	}
+
+	private void parseCity(Pipeline pipeline, CityGML citygml) throws InterruptedException {
 		CityModel cityModel = (CityModel) citygml;
 
 		for (CityObjectMember cityObjectMember : cityModel.getCityObjectMember()) {
-			try {
-				AbstractCityObject cityObject = cityObjectMember.getCityObject();
-				if (cityObject.getCityGMLClass() != CityGMLClass.BUILDING) {
-					continue;
-				}
-
-				CoordinateReferenceSystem inputCRS = this.inputCRS;
-				if (inputCRS == null) {
-					String inputSRS = "EPSG:4326";
-					BoundingShape bs = cityObject.getBoundedBy();
-					if (bs != null) {
-						Envelope envelope = bs.getEnvelope();
-						if (envelope != null) {
-							inputSRS = envelope.getSrsName();
-						}
-					}
-
-					try {
-						inputCRS = crsFactory.createFromName(inputSRS);
-					} catch (RuntimeException e) {
-					}
-					if (inputCRS == null) {
-						Matcher m = SRS_LIKE.matcher(inputSRS);
-						if (m.find()) {
-							inputSRS = "EPSG:" + m.group();
-						}
-						try {
-							inputCRS = crsFactory.createFromName(inputSRS);
-						} catch (RuntimeException e) {
-							LOGGER.warning(e.toString());
-						}
-					}
-					if (inputCRS == null) {
-						inputCRS = crsFactory.createFromName("EPSG:4326");
-					}
-				}
-				CoordinateTransform ct = null;
-				if (!inputCRS.equals(outputCRS)) {
-					ct = ctFactory.createTransform(inputCRS, outputCRS);
-				}
+			AbstractCityObject cityObject = cityObjectMember.getCityObject();
+			if (cityObject == null || cityObject.getCityGMLClass() != CityGMLClass.BUILDING) {
+				continue;
+			}
+			parseCityObject(pipeline, cityObject);
+		}
+	}
 
-				Building b = (Building) cityObject;
-				Item item = createItem(b, ct);
-				if (item == null) {
-					continue;
-				}
-				processor.process(item);
-			} catch (RuntimeException e) {
-				LOGGER.warning(e.toString());
+	private void parseCityObject(Pipeline pipeline, AbstractCityObject cityObject) throws InterruptedException {
+		String srsName = null;
+		BoundingShape bs = cityObject.getBoundedBy();
+		if (bs != null) {
+			Envelope envelope = bs.getEnvelope();
+			if (envelope != null) {
+				srsName = envelope.getSrsName();
 			}
 		}
+		CoordinateReferenceSystem sourceCRS = getInputCRS(srsName);
+
+		Building b = (Building) cityObject;
+		pipeline.submit(() -> createItem(b, sourceCRS));
 	}
 }
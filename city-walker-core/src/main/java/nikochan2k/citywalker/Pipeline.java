@@ -0,0 +1,134 @@
+package nikochan2k.citywalker;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+class Pipeline implements AutoCloseable {
+
+	private static final Logger LOGGER = Logger.getLogger(Pipeline.class.getName());
+	private static final Future<Item> END = CompletableFuture.completedFuture(null);
+
+	private final ExecutorService executor;
+	// the first thing that killed the writer, rethrown to the parsing thread
+	private volatile Throwable failure;
+	private final Processor processor;
+	private final BlockingQueue<Future<Item>> queue;
+	private final Thread writer;
+
+	Pipeline(Processor processor, ExecutorService executor, int workers) {
+		this.processor = processor;
+		this.executor = executor;
+		if (executor == null) {
+			queue = null;
+			writer = null;
+			return;
+		}
+		queue = new ArrayBlockingQueue<>(workers * 4);
+		writer = new Thread(this::write, "city-walker-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	private void checkFailure() {
+		Throwable t = failure;
+		if (t == null) {
+			return;
+		}
+		if (t instanceof Error) {
+			throw (Error) t;
+		}
+		if (t instanceof RuntimeException) {
+			throw (RuntimeException) t;
+		}
+		throw new IllegalStateException(t);
+	}
+
+	@Override
+	public void close() {
+		if (writer == null) {
+			return;
+		}
+		writer.interrupt();
+		// the executor belongs to the parser, so only drop what is still queued
+		drain();
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void drain() {
+		for (Future<Item> future = queue.poll(); future != null; future = queue.poll()) {
+			future.cancel(true);
+		}
+	}
+
+	void finish() throws InterruptedException {
+		if (writer == null) {
+			return;
+		}
+		checkFailure();
+		queue.put(END);
+		writer.join();
+		checkFailure();
+	}
+
+	private void process(Item item) {
+		if (item == null) {
+			return;
+		}
+		try {
+			processor.process(item);
+		} catch (RuntimeException e) {
+			LOGGER.warning(e.toString());
+		}
+	}
+
+	void submit(Callable<Item> task) throws InterruptedException {
+		if (executor == null) {
+			try {
+				process(task.call());
+			} catch (Exception e) {
+				LOGGER.warning(e.toString());
+			}
+			return;
+		}
+		checkFailure();
+		queue.put(executor.submit(task));
+	}
+
+	private void write() {
+		try {
+			for (Future<Item> future = queue.take(); future != END; future = queue.take()) {
+				try {
+					process(future.get());
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof Error) {
+						throw (Error) e.getCause();
+					}
+					LOGGER.warning(e.getCause().toString());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (Throwable t) {
+			failure = t;
+			// keep taking so a producer blocked in put wakes up and sees the failure
+			try {
+				for (Future<Item> future = queue.take(); future != END; future = queue.take()) {
+					future.cancel(true);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,61 @@
+package nikochan2k.citywalker;
+
+class PosListReader {
+
+	private final char[] token = new char[64];
+	private final double[] position = new double[3];
+	private int tokenLength;
+	private int index;
+	private int dimension;
+	private Item item;
+
+	private void addVertex(int count) {
+		double z = count == 2 ? 0.0 : position[2];
+		item.addVertex(position[0], position[1], z);
+		index = 0;
+	}
+
+	void end() {
+		flushToken();
+		if (dimension == 0 && 2 <= index) {
+			addVertex(index);
+		}
+		item = null;
+	}
+
+	private void flushToken() {
+		if (tokenLength == 0) {
+			return;
+		}
+		double value = DecimalParser.parse(token, 0, tokenLength);
+		tokenLength = 0;
+		if (index < 3) {
+			position[index] = value;
+		}
+		index++;
+		if (index == dimension) {
+			addVertex(dimension);
+		}
+	}
+
+	void read(char[] chars, int start, int length) {
+		for (int i = start, end = start + length; i < end; i++) {
+			char c = chars[i];
+			if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+				flushToken();
+			} else if (tokenLength < token.length) {
+				token[tokenLength++] = c;
+			} else {
+				throw new NumberFormatException("Too long number: " + new String(token) + "...");
+			}
+		}
+	}
+
+	void start(Item item, int dimension) {
+		this.item = item;
+		this.dimension = dimension;
+		tokenLength = 0;
+		index = 0;
+	}
+
+}
@@ -0,0 +1,52 @@
+package nikochan2k.citywalker;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class PropertyFilter {
+
+	public static final PropertyFilter ALL = new PropertyFilter(Collections.<String>emptySet(),
+			Collections.<String>emptySet());
+	// the height extrudes the footprint and the id identifies it, so they stay unless excluded by name
+	private static final Set<String> KEPT = new HashSet<>(Arrays.asList("id", "measuredHeight"));
+
+	public static PropertyFilter parse(String... names) {
+		Set<String> includes = new HashSet<>();
+		Set<String> excludes = new HashSet<>();
+		for (String name : names) {
+			name = name.trim();
+			if (name.startsWith("-")) {
+				excludes.add(name.substring(1).trim());
+			} else if (!name.isEmpty()) {
+				includes.add(name);
+			}
+		}
+		return new PropertyFilter(includes, excludes);
+	}
+
+	private final Set<String> excludes;
+	private final Set<String> includes;
+
+	public PropertyFilter(Set<String> includes, Set<String> excludes) {
+		this.includes = includes;
+		this.excludes = excludes;
+	}
+
+	public boolean accept(String name) {
+		if (excludes.contains(name)) {
+			return false;
+		}
+		return includes.isEmpty() || includes.contains(name) || KEPT.contains(name);
+	}
+
+	public Set<String> getExcludes() {
+		return excludes;
+	}
+
+	public Set<String> getIncludes() {
+		return includes;
+	}
+
+}
@@ -0,0 +1,620 @@
+package nikochan2k.citywalker;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.locationtech.proj4j.CoordinateReferenceSystem;
+
+public class StaxParser extends Parser {
+
+	private static class Building {
+		String id;
+		String srsName;
+		Double measuredHeight;
+		String clazz;
+		List<String> function = new ArrayList<>();
+		List<String> usage = new ArrayList<>();
+		LocalDate yearOfConstruction;
+		LocalDate yearOfDemolition;
+		String roofType;
+		Integer storeysAboveGround;
+		Integer storeysBelowGround;
+		Map<String, Serializable> attributes = new LinkedHashMap<>();
+		Map<String, Serializable> adeProperties = new LinkedHashMap<>();
+		Surface lod0FootPrint;
+		Surface lod0RoofEdge;
+		Surface lod1Solid;
+	}
+
+	private static class Surface {
+		final Item ring;
+		final List<Surface> members;
+
+		Surface(Item ring, List<Surface> members) {
+			this.ring = ring;
+			this.members = members;
+		}
+	}
+
+	private static final Logger LOGGER = Logger.getLogger(StaxParser.class.getName());
+	private static final String BUILDING_NS = "http://www.opengis.net/citygml/building/";
+	private static final String GENERICS_NS = "http://www.opengis.net/citygml/generics/";
+	private static final String GML_NS = "http://www.opengis.net/gml";
+	private static final String OPENGIS_NS = "http://www.opengis.net/";
+	private static final String XAL_NS = "urn:oasis:names:tc:ciq:xsdschema:xAL:";
+
+	private static boolean isBuildingElement(XMLStreamReader reader) {
+		String ns = reader.getNamespaceURI();
+		return ns != null && ns.startsWith(BUILDING_NS);
+	}
+
+	private static boolean isGenericsElement(XMLStreamReader reader) {
+		String ns = reader.getNamespaceURI();
+		return ns != null && ns.startsWith(GENERICS_NS);
+	}
+
+	private static boolean isGMLElement(XMLStreamReader reader, String localName) {
+		String ns = reader.getNamespaceURI();
+		return ns != null && ns.startsWith(GML_NS) && localName.equals(reader.getLocalName());
+	}
+
+	private static boolean isADEElement(XMLStreamReader reader) {
+		String ns = reader.getNamespaceURI();
+		return ns != null && !ns.startsWith(OPENGIS_NS) && !ns.startsWith(XAL_NS);
+	}
+
+	private static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+		while (true) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				return true;
+			}
+			if (event == XMLStreamConstants.END_ELEMENT) {
+				return false;
+			}
+		}
+	}
+
+	private static LocalDate parseDate(String text) {
+		if (text == null) {
+			return null;
+		}
+		text = text.trim();
+		if (text.length() == 4) {
+			return LocalDate.of(Integer.parseInt(text), 1, 1);
+		}
+		if (10 < text.length()) {
+			text = text.substring(0, 10);
+		}
+		return LocalDate.parse(text);
+	}
+
+	private static Double parseDouble(String text) {
+		return text == null ? null : Double.valueOf(text.trim());
+	}
+
+	private static Integer parseInteger(String text) {
+		return text == null ? null : Integer.valueOf(text.trim());
+	}
+
+	private static String readText(XMLStreamReader reader) throws XMLStreamException {
+		StringBuilder builder = new StringBuilder();
+		boolean complex = false;
+		while (true) {
+			switch (reader.next()) {
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+			case XMLStreamConstants.ENTITY_REFERENCE:
+				builder.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+				break;
+			case XMLStreamConstants.START_ELEMENT:
+				complex = true;
+				skip(reader);
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				return complex ? null : builder.toString();
+			default:
+				break;
+			}
+		}
+	}
+
+	private static Item select(Surface surface) {
+		if (surface == null) {
+			return null;
+		}
+		if (surface.ring != null) {
+			return surface.ring;
+		}
+		Item result = null;
+		for (Surface member : surface.members) {
+			Item ring = select(member);
+			if (ring == null) {
+				continue;
+			}
+			if (0.0 < getArea(ring.coordinates, ring.vertexCount)) {
+				result = ring;
+			}
+		}
+		return result;
+	}
+
+	private static void skip(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (0 < depth) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+	}
+
+	private final PosListReader posListReader = new PosListReader();
+	private final XMLInputFactory xmlInputFactory;
+
+	public StaxParser(Factory factory) {
+		super(factory);
+		xmlInputFactory = XMLInputFactory.newInstance();
+		xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+	}
+
+	private Item createItem(Building b) {
+		Item ring = select(b.lod0FootPrint);
+		if (ring == null)
+			ring = select(b.lod0RoofEdge);
+		if (ring == null)
+			ring = select(b.lod1Solid);
+		if (ring == null || ring.vertexCount == 0) {
+			return null;
+		}
+		Item item = new Item(b.id);
+		item.coordinates = ring.coordinates;
+		item.vertexCount = ring.vertexCount;
+
+		Map<String, Serializable> props = item.props;
+		PropertyFilter filter = factory.getPropertyFilter();
+		put(props, filter, "measuredHeight", b.measuredHeight);
+		if (!factory.isNoAttributes()) {
+			put(props, filter, "id", b.id);
+			put(props, filter, "class", b.clazz);
+			if (0 < b.function.size()) {
+				put(props, filter, "function", String.join(",", b.function));
+			}
+			if (0 < b.usage.size()) {
+				put(props, filter, "usage", String.join(",", b.usage));
+			}
+			put(props, filter, "yearOfConstruction", b.yearOfConstruction);
+			put(props, filter, "yearOfDemolition", b.yearOfDemolition);
+			put(props, filter, "roofType", b.roofType);
+			put(props, filter, "storeysAboveGround", b.storeysAboveGround);
+			put(props, filter, "storeysBelowGround", b.storeysBelowGround);
+			props.putAll(b.attributes);
+			props.putAll(b.adeProperties);
+		}
+		return item;
+	}
+
+	@Override
+	public void parse(File input, Map<String, Object> props) throws CityWalkerException {
+		try (InputStream is = new BufferedInputStream(new FileInputStream(input), 65536)) {
+			parse(input, is);
+		} catch (IOException e) {
+			throw new CityWalkerException(e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public void parse(InputStream is, File input) throws CityWalkerException {
+		parse(input, new BufferedInputStream(is, 65536));
+	}
+
+	private void parse(File input, InputStream is) throws CityWalkerException {
+		XMLStreamReader reader = null;
+		try {
+			reader = xmlInputFactory.createXMLStreamReader(is);
+			Processor processor = factory.createProcessor(input, getOutputCRS().getName());
+			LOGGER.info(String.format("Parsing \"%s\"", input.getAbsolutePath()));
+			try (Pipeline pipeline = new Pipeline(processor, getExecutor(), factory.getWorkers())) {
+				while (reader.hasNext()) {
+					if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+						continue;
+					}
+					if (!"Building".equals(reader.getLocalName()) || !isBuildingElement(reader)) {
+						continue;
+					}
+					Item item;
+					CoordinateReferenceSystem sourceCRS;
+					try {
+						Building b = readBuilding(reader);
+						item = createItem(b);
+						if (item == null) {
+							continue;
+						}
+						sourceCRS = getInputCRS(b.srsName);
+					} catch (RuntimeException e) {
+						LOGGER.warning(e.toString());
+						continue;
+					}
+					pipeline.submit(() -> {
+						project(item, sourceCRS);
+						return item;
+					});
+				}
+				pipeline.finish();
+			}
+			processor.finish();
+		} catch (XMLStreamException | InterruptedException | RuntimeException e) {
+			throw new CityWalkerException(e.getMessage(), e);
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (XMLStreamException e) {
+					LOGGER.warning(e.toString());
+				}
+			}
+		}
+	}
+
+	private void put(Map<String, Serializable> props, PropertyFilter filter, String name, Serializable value) {
+		if (value != null && filter.accept(name)) {
+			props.put(name, value);
+		}
+	}
+
+	private void readADEObject(XMLStreamReader reader, Map<String, Serializable> props, Set<String> repeated)
+			throws XMLStreamException {
+		PropertyFilter filter = factory.getPropertyFilter();
+		while (nextChild(reader)) {
+			String name = reader.getLocalName();
+			if (!filter.accept(name) || repeated.contains(name)) {
+				skip(reader);
+				continue;
+			}
+			boolean code = reader.getAttributeValue(null, "codeSpace") != null;
+			boolean measure = reader.getAttributeValue(null, "uom") != null;
+			String text = readText(reader);
+			if (text == null) {
+				continue;
+			}
+			if (props.containsKey(name)) {
+				props.remove(name);
+				repeated.add(name);
+				continue;
+			}
+			Serializable value;
+			try {
+				if (code) {
+					value = text;
+				} else if (measure) {
+					value = Double.parseDouble(text.trim());
+				} else {
+					value = toScalar(text);
+				}
+			} catch (RuntimeException e) {
+				value = text;
+			}
+			props.put(name, value);
+		}
+	}
+
+	private void readADEProperty(XMLStreamReader reader, Building b) throws XMLStreamException {
+		Set<String> repeated = new HashSet<>();
+		while (nextChild(reader)) {
+			Map<String, Serializable> props = new LinkedHashMap<>();
+			readADEObject(reader, props, repeated);
+			for (Entry<String, Serializable> entry : props.entrySet()) {
+				b.adeProperties.put(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	private Building readBuilding(XMLStreamReader reader) throws XMLStreamException {
+		Building b = new Building();
+		for (int i = 0, end = reader.getAttributeCount(); i < end; i++) {
+			String ns = reader.getAttributeNamespace(i);
+			if ("id".equals(reader.getAttributeLocalName(i)) && ns != null && ns.startsWith(GML_NS)) {
+				b.id = reader.getAttributeValue(i);
+			}
+		}
+		boolean attributes = !factory.isNoAttributes();
+		while (nextChild(reader)) {
+			String name = reader.getLocalName();
+			if (isBuildingElement(reader)) {
+				switch (name) {
+				case "measuredHeight":
+					b.measuredHeight = parseDouble(readText(reader));
+					break;
+				case "lod0FootPrint":
+					b.lod0FootPrint = readMultiSurfaceProperty(reader);
+					break;
+				case "lod0RoofEdge":
+					b.lod0RoofEdge = readMultiSurfaceProperty(reader);
+					break;
+				case "lod1Solid":
+					b.lod1Solid = readSolidProperty(reader);
+					break;
+				case "class":
+					b.clazz = attributes ? readText(reader) : skipText(reader);
+					break;
+				case "function":
+					if (attributes) {
+						b.function.add(readText(reader));
+					} else {
+						skip(reader);
+					}
+					break;
+				case "usage":
+					if (attributes) {
+						b.usage.add(readText(reader));
+					} else {
+						skip(reader);
+					}
+					break;
+				case "yearOfConstruction":
+					if (attributes) {
+						b.yearOfConstruction = parseDate(readText(reader));
+					} else {
+						skip(reader);
+					}
+					break;
+				case "yearOfDemolition":
+					if (attributes) {
+						b.yearOfDemolition = parseDate(readText(reader));
+					} else {
+						skip(reader);
+					}
+					break;
+				case "roofType":
+					b.roofType = attributes ? readText(reader) : skipText(reader);
+					break;
+				case "storeysAboveGround":
+					if (attributes) {
+						b.storeysAboveGround = parseInteger(readText(reader));
+					} else {
+						skip(reader);
+					}
+					break;
+				case "storeysBelowGround":
+					if (attributes) {
+						b.storeysBelowGround = parseInteger(readText(reader));
+					} else {
+						skip(reader);
+					}
+					break;
+				default:
+					skip(reader);
+					break;
+				}
+			} else if (isGMLElement(reader, "boundedBy")) {
+				b.srsName = readSrsName(reader);
+			} else if (attributes && isGenericsElement(reader)) {
+				readGenericAttribute(reader, b);
+			} else if (attributes && isADEElement(reader)) {
+				readADEProperty(reader, b);
+			} else {
+				skip(reader);
+			}
+		}
+		return b;
+	}
+
+	private void readGenericAttribute(XMLStreamReader reader, Building b) throws XMLStreamException {
+		String type = reader.getLocalName();
+		String name = reader.getAttributeValue(null, "name");
+		if (name == null || !factory.getPropertyFilter().accept(name)) {
+			skip(reader);
+			return;
+		}
+		String text = null;
+		while (nextChild(reader)) {
+			if ("value".equals(reader.getLocalName()) && isGenericsElement(reader)) {
+				text = readText(reader);
+			} else {
+				skip(reader);
+			}
+		}
+		if (text == null) {
+			return;
+		}
+		switch (type) {
+		case "stringAttribute":
+			b.attributes.put(name, text);
+			break;
+		case "uriAttribute":
+			try {
+				b.attributes.put(name, new URI(text));
+			} catch (URISyntaxException e) {
+				LOGGER.fine(e.toString());
+			}
+			break;
+		case "measureAttribute":
+		case "doubleAttribute":
+			b.attributes.put(name, Double.parseDouble(text.trim()));
+			break;
+		case "intAttribute":
+			b.attributes.put(name, Integer.valueOf(text.trim()));
+			break;
+		case "dateAttribute":
+			b.attributes.put(name, parseDate(text));
+			break;
+		default:
+			break;
+		}
+	}
+
+	private Surface readMultiSurfaceProperty(XMLStreamReader reader) throws XMLStreamException {
+		Surface result = null;
+		while (nextChild(reader)) {
+			if (!isGMLElement(reader, "MultiSurface")) {
+				skip(reader);
+				continue;
+			}
+			boolean first = true;
+			while (nextChild(reader)) {
+				if (first && isGMLElement(reader, "surfaceMember")) {
+					first = false;
+					result = readSurfaceProperty(reader);
+				} else {
+					skip(reader);
+				}
+			}
+		}
+		return result;
+	}
+
+	private Surface readPolygon(XMLStreamReader reader) throws XMLStreamException {
+		Item ring = new Item(null);
+		while (nextChild(reader)) {
+			if (!isGMLElement(reader, "exterior")) {
+				skip(reader);
+				continue;
+			}
+			while (nextChild(reader)) {
+				if (!isGMLElement(reader, "LinearRing")) {
+					skip(reader);
+					continue;
+				}
+				while (nextChild(reader)) {
+					if (isGMLElement(reader, "posList")) {
+						String dimension = reader.getAttributeValue(null, "srsDimension");
+						readPositions(reader, "2".equals(dimension) ? 2 : 3, ring);
+					} else if (isGMLElement(reader, "pos")) {
+						readPositions(reader, 0, ring);
+					} else {
+						skip(reader);
+					}
+				}
+			}
+		}
+		return new Surface(ring, null);
+	}
+
+	private void readPositions(XMLStreamReader reader, int dimension, Item ring) throws XMLStreamException {
+		posListReader.start(ring, dimension);
+		while (true) {
+			switch (reader.next()) {
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				posListReader.read(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+				break;
+			case XMLStreamConstants.START_ELEMENT:
+				skip(reader);
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				posListReader.end();
+				return;
+			default:
+				break;
+			}
+		}
+	}
+
+	private Surface readSolidProperty(XMLStreamReader reader) throws XMLStreamException {
+		Surface result = null;
+		while (nextChild(reader)) {
+			if (!isGMLElement(reader, "Solid")) {
+				skip(reader);
+				continue;
+			}
+			while (nextChild(reader)) {
+				if (isGMLElement(reader, "exterior")) {
+					result = readSurfaceProperty(reader);
+				} else {
+					skip(reader);
+				}
+			}
+		}
+		return result;
+	}
+
+	private String readSrsName(XMLStreamReader reader) throws XMLStreamException {
+		String srsName = null;
+		while (nextChild(reader)) {
+			if (isGMLElement(reader, "Envelope")) {
+				srsName = reader.getAttributeValue(null, "srsName");
+			}
+			skip(reader);
+		}
+		return srsName;
+	}
+
+	private Surface readSurface(XMLStreamReader reader) throws XMLStreamException {
+		if (isGMLElement(reader, "Polygon")) {
+			return readPolygon(reader);
+		}
+		if (isGMLElement(reader, "CompositeSurface")) {
+			List<Surface> members = new ArrayList<>();
+			while (nextChild(reader)) {
+				if (isGMLElement(reader, "surfaceMember")) {
+					members.add(readSurfaceProperty(reader));
+				} else {
+					skip(reader);
+				}
+			}
+			return new Surface(null, members);
+		}
+		skip(reader);
+		return null;
+	}
+
+	private Surface readSurfaceProperty(XMLStreamReader reader) throws XMLStreamException {
+		Surface result = null;
+		while (nextChild(reader)) {
+			if (result == null) {
+				result = readSurface(reader);
+			} else {
+				skip(reader);
+			}
+		}
+		return result;
+	}
+
+	private String skipText(XMLStreamReader reader) throws XMLStreamException {
+		skip(reader);
+		return null;
+	}
+
+	private Serializable toScalar(String text) {
+		String trimmed = text.trim();
+		if (trimmed.matches("-?\\d{1,9}")) {
+			return Integer.valueOf(trimmed);
+		}
+		if (trimmed.matches("\\d{4}-\\d{2}-\\d{2}.*")) {
+			return parseDate(trimmed);
+		}
+		if (trimmed.matches("[-+]?(\\d+\\.?\\d*|\\.\\d+)([eE][-+]?\\d+)?")) {
+			return Double.valueOf(trimmed);
+		}
+		if ("true".equals(trimmed) || "false".equals(trimmed)) {
+			return Boolean.valueOf(trimmed);
+		}
+		return text;
+	}
+
+}
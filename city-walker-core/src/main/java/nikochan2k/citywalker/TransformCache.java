@@ -0,0 +1,126 @@
+package nikochan2k.citywalker;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.locationtech.proj4j.CRSFactory;
+import org.locationtech.proj4j.CoordinateReferenceSystem;
+import org.locationtech.proj4j.CoordinateTransform;
+import org.locationtech.proj4j.CoordinateTransformFactory;
+
+public class TransformCache {
+
+	private static final TransformCache INSTANCE = new TransformCache();
+	private static final Logger LOGGER = Logger.getLogger(TransformCache.class.getName());
+	private static final Pattern SRS_LIKE = Pattern.compile("\\d{4,}");
+	private static final String DEFAULT_SRS = "EPSG:4326";
+	private static final BatchTransform IDENTITY = new BatchTransform(null);
+
+	public static TransformCache getInstance() {
+		return INSTANCE;
+	}
+
+	private final CRSFactory crsFactory = new CRSFactory();
+	private final ConcurrentMap<String, Optional<CoordinateReferenceSystem>> crsCache = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, CoordinateReferenceSystem> detectedCache = new ConcurrentHashMap<>();
+	private final CoordinateTransformFactory ctFactory = new CoordinateTransformFactory();
+	private final AtomicLong detectHits = new AtomicLong();
+	private final AtomicLong detectMisses = new AtomicLong();
+	private final AtomicLong transformHits = new AtomicLong();
+	private final AtomicLong transformMisses = new AtomicLong();
+	// keyed by instance, getCRS hands out one per name so no key has to be built per building
+	private final ThreadLocal<Map<CoordinateReferenceSystem, Map<CoordinateReferenceSystem, BatchTransform>>> transforms = ThreadLocal
+			.withInitial(IdentityHashMap::new);
+
+	private TransformCache() {
+	}
+
+	private CoordinateReferenceSystem createFromName(String name) {
+		synchronized (crsFactory) {
+			try {
+				return crsFactory.createFromName(name);
+			} catch (RuntimeException e) {
+				LOGGER.fine(e.toString());
+				return null;
+			}
+		}
+	}
+
+	private CoordinateReferenceSystem detect(String srsName) {
+		CoordinateReferenceSystem crs = getCRS(srsName);
+		if (crs == null) {
+			Matcher m = SRS_LIKE.matcher(srsName);
+			if (m.find()) {
+				crs = getCRS("EPSG:" + m.group());
+			}
+		}
+		if (crs == null) {
+			LOGGER.warning("Unknown SRS: " + srsName);
+			crs = getCRS(DEFAULT_SRS);
+		}
+		return crs;
+	}
+
+	public CoordinateReferenceSystem detectCRS(String srsName) {
+		if (srsName == null) {
+			srsName = DEFAULT_SRS;
+		}
+		CoordinateReferenceSystem crs = detectedCache.get(srsName);
+		if (crs != null) {
+			detectHits.incrementAndGet();
+			return crs;
+		}
+		detectMisses.incrementAndGet();
+		return detectedCache.computeIfAbsent(srsName, this::detect);
+	}
+
+	public CoordinateReferenceSystem getCRS(String name) {
+		return crsCache.computeIfAbsent(name, n -> Optional.ofNullable(createFromName(n))).orElse(null);
+	}
+
+	public long getDetectHitCount() {
+		return detectHits.get();
+	}
+
+	public long getDetectMissCount() {
+		return detectMisses.get();
+	}
+
+	public BatchTransform getTransform(CoordinateReferenceSystem source, CoordinateReferenceSystem target) {
+		if (source.equals(target)) {
+			return null;
+		}
+		Map<CoordinateReferenceSystem, BatchTransform> map = transforms.get().computeIfAbsent(source,
+				s -> new IdentityHashMap<>());
+		BatchTransform bt = map.get(target);
+		if (bt != null) {
+			transformHits.incrementAndGet();
+		} else {
+			transformMisses.incrementAndGet();
+			if (BatchTransform.isIdentity(source, target)) {
+				bt = IDENTITY;
+			} else {
+				CoordinateTransform ct = ctFactory.createTransform(source, target);
+				bt = new BatchTransform(ct);
+			}
+			map.put(target, bt);
+		}
+		return bt == IDENTITY ? null : bt;
+	}
+
+	public long getTransformHitCount() {
+		return transformHits.get();
+	}
+
+	public long getTransformMissCount() {
+		return transformMisses.get();
+	}
+
+}
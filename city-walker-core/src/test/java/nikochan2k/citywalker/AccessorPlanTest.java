@@ -0,0 +1,84 @@
+package nikochan2k.citywalker;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Serializable;
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class AccessorPlanTest {
+
+	static class AbstractAde {
+		String buildingStructureType = "610";
+		String name = "base";
+	}
+
+	static class Ade extends AbstractAde {
+		static String constant = "static";
+		Boolean fireproof = Boolean.TRUE;
+		Measure floorArea = new Measure(120.5);
+		List<String> list = Arrays.asList("a", "b");
+		String name = "ade";
+		Object none;
+		double ratio = 0.6;
+		int storeys = 3;
+		LocalDate surveyYear = LocalDate.of(2020, 4, 1);
+		URI url = URI.create("https://example.com/ade");
+	}
+
+	static class Measure {
+		private final double value;
+
+		Measure(double value) {
+			this.value = value;
+		}
+
+		public Object getValue() {
+			return value;
+		}
+	}
+
+	private static Map<String, Serializable> collect(Object obj, PropertyFilter filter) {
+		Map<String, Serializable> props = new HashMap<>();
+		AccessorPlan.of(obj.getClass()).collect(obj, filter, props);
+		return props;
+	}
+
+	@Test
+	void testConversions() {
+		Map<String, Serializable> props = collect(new Ade(), PropertyFilter.ALL);
+		assertEquals(Boolean.TRUE, props.get("fireproof"));
+		assertEquals(120.5, props.get("floorArea"));
+		assertEquals(0.6, props.get("ratio"));
+		assertEquals(3, props.get("storeys"));
+		assertEquals(LocalDate.of(2020, 4, 1), props.get("surveyYear"));
+		assertEquals(URI.create("https://example.com/ade"), props.get("url"));
+		assertFalse(props.containsKey("constant"));
+		assertFalse(props.containsKey("list"));
+		assertFalse(props.containsKey("none"));
+	}
+
+	@Test
+	void testFilter() {
+		Map<String, Serializable> props = collect(new Ade(), PropertyFilter.parse("storeys", "buildingStructureType"));
+		assertEquals(2, props.size());
+		assertEquals(3, props.get("storeys"));
+		assertEquals("610", props.get("buildingStructureType"));
+	}
+
+	@Test
+	void testInherited() {
+		Map<String, Serializable> props = collect(new Ade(), PropertyFilter.ALL);
+		assertEquals("610", props.get("buildingStructureType"));
+		// the subclass field hides the inherited one of the same name
+		assertEquals("ade", props.get("name"));
+		assertSame(AccessorPlan.of(Ade.class), AccessorPlan.of(Ade.class));
+	}
+
+}
@@ -0,0 +1,53 @@
+package nikochan2k.citywalker;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.locationtech.proj4j.CRSFactory;
+import org.locationtech.proj4j.CoordinateReferenceSystem;
+
+class BatchTransformTest {
+
+	private final TransformCache cache = TransformCache.getInstance();
+	private final CRSFactory factory = new CRSFactory();
+
+	@Test
+	void testAxis() {
+		CoordinateReferenceSystem lonLat = factory.createFromParameters("lonlat", "+proj=longlat +datum=WGS84 +no_defs");
+		CoordinateReferenceSystem latLon = factory.createFromParameters("latlon",
+				"+proj=longlat +datum=WGS84 +axis=neu +no_defs");
+		assertFalse(BatchTransform.isIdentity(lonLat, latLon));
+		assertFalse(BatchTransform.isIdentity(latLon, lonLat));
+	}
+
+	@Test
+	void testJGD2011() {
+		// resolved from the srsName the way the parser does for PLATEAU files
+		CoordinateReferenceSystem jgd2011 = cache.detectCRS("http://www.opengis.net/def/crs/EPSG/0/6697");
+		CoordinateReferenceSystem wgs84 = cache.getCRS("EPSG:4326");
+		assertTrue(BatchTransform.isIdentity(jgd2011, wgs84));
+		assertNull(cache.getTransform(jgd2011, wgs84));
+	}
+
+	@Test
+	void testPrimeMeridian() {
+		CoordinateReferenceSystem greenwich = factory.createFromParameters("greenwich",
+				"+proj=longlat +ellps=GRS80 +towgs84=0,0,0,0,0,0,0 +no_defs");
+		CoordinateReferenceSystem paris = factory.createFromParameters("paris",
+				"+proj=longlat +ellps=GRS80 +towgs84=0,0,0,0,0,0,0 +pm=paris +no_defs");
+		assertFalse(BatchTransform.isIdentity(greenwich, paris));
+		assertFalse(BatchTransform.isIdentity(paris, greenwich));
+		assertTrue(BatchTransform.isIdentity(greenwich, factory.createFromParameters("greenwich2",
+				"+proj=longlat +ellps=GRS80 +towgs84=0,0,0,0,0,0,0 +no_defs")));
+	}
+
+	@Test
+	void testTokyo() {
+		CoordinateReferenceSystem tokyo = cache.getCRS("EPSG:4301");
+		CoordinateReferenceSystem wgs84 = cache.getCRS("EPSG:4326");
+		assertFalse(BatchTransform.isIdentity(tokyo, wgs84));
+		assertFalse(BatchTransform.isIdentity(wgs84, tokyo));
+		assertNotNull(cache.getTransform(tokyo, wgs84));
+	}
+
+}
@@ -0,0 +1,74 @@
+package nikochan2k.citywalker;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DecimalParserBenchmark {
+
+	private char[] posList;
+	private double[] values;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(0);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			sb.append(String.format(Locale.ROOT, "%.8f %.8f %.3f ", 35 + random.nextDouble(), 139 + random.nextDouble(),
+					random.nextDouble() * 50));
+		}
+		posList = sb.toString().toCharArray();
+		values = new double[3000];
+	}
+
+	@Benchmark
+	public void decimalParser(Blackhole bh) {
+		int count = 0;
+		int i = 0;
+		while (i < posList.length) {
+			while (i < posList.length && posList[i] == ' ') {
+				i++;
+			}
+			int start = i;
+			while (i < posList.length && posList[i] != ' ') {
+				i++;
+			}
+			if (start < i) {
+				values[count++] = DecimalParser.parse(posList, start, i);
+			}
+		}
+		bh.consume(values);
+	}
+
+	@Benchmark
+	public void parseDouble(Blackhole bh) {
+		String[] tokens = new String(posList).trim().split("\\s+");
+		for (int i = 0; i < tokens.length; i++) {
+			values[i] = Double.parseDouble(tokens[i]);
+		}
+		bh.consume(values);
+	}
+
+	public static void main(String... args) throws Exception {
+		org.openjdk.jmh.Main.main(args);
+	}
+
+}
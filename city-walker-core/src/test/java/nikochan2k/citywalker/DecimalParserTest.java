@@ -0,0 +1,53 @@
+package nikochan2k.citywalker;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class DecimalParserTest {
+
+	private static void assertParse(String text) {
+		char[] chars = ("  " + text + "  ").toCharArray();
+		long expected = Double.doubleToRawLongBits(Double.parseDouble(text));
+		long actual = Double.doubleToRawLongBits(DecimalParser.parse(chars, 2, 2 + text.length()));
+		assertEquals(expected, actual, text);
+	}
+
+	@Test
+	void testBoundaries() {
+		String[] inputs = { "0", "-0", "+0", "0.0", "-0.0", "00000", "1", "-1", "+1.5", ".5", "-.5", "5.", "5.e3",
+				"35.12345678", "139.76543210", "-12.345", "9007199254740992", "9007199254740993",
+				"9007199254740991.5", "900719925474099.3", "1e22", "1e23", "1e-22", "1e-23", "123e20", "123e-20",
+				"4.35e-22", "1.7976931348623157e308", "4.9e-324", "2.2250738585072014E-308", "1e400", "1e-400",
+				"1234567890123456789", "12345678901234567890", "0.12345678901234567890123",
+				"1.0000000000000000000000000001", "0.000000000000000000000000001", "1000000000000000000000000",
+				"1E+5", "1e0", "1e-0", "Infinity", "-Infinity", "NaN", "1d", "1f", "0x1p3" };
+		for (String input : inputs) {
+			assertParse(input);
+		}
+	}
+
+	@Test
+	void testInvalid() {
+		String[] inputs = { "", "-", "+", ".", "e5", "1e", "1e+", "1.2.3", "1-2", "--1", "abc" };
+		for (String input : inputs) {
+			char[] chars = input.toCharArray();
+			assertThrows(NumberFormatException.class, () -> DecimalParser.parse(chars, 0, chars.length), input);
+		}
+	}
+
+	@Test
+	void testRandom() {
+		Random random = new Random(0);
+		for (int i = 0; i < 100000; i++) {
+			assertParse(String.format(Locale.ROOT, "%.8f", 35 + random.nextDouble()));
+			assertParse(String.format(Locale.ROOT, "%.3f", random.nextDouble() * 100 - 50));
+			assertParse(Double.toString(random.nextDouble() * Math.pow(10, random.nextInt(40) - 20)));
+			assertParse(Double.toString(Double.longBitsToDouble(random.nextLong())));
+		}
+	}
+
+}
@@ -0,0 +1,32 @@
+package nikochan2k.citywalker;
+
+import java.net.URI;
+import java.time.LocalDate;
+
+public class ItemFixture {
+
+	// a closed counter-clockwise square with the usual PLATEAU attributes, varied by index
+	public static Item building(int index, double lon, double lat, double size, double z) {
+		Item item = square("bldg_" + index, lon, lat, size, z);
+		item.props.put("class", index % 2 == 0 ? "3001" : "3002");
+		item.props.put("measuredHeight", 12.5 + index);
+		item.props.put("storeysAboveGround", index % 5);
+		item.props.put("yearOfConstruction", LocalDate.of(1950 + index, 1, 1));
+		item.props.put("url", URI.create("https://example.com/" + index));
+		return item;
+	}
+
+	public static Item square(String id, double lon, double lat, double size, double z) {
+		Item item = new Item(id);
+		item.addVertex(lon, lat, z);
+		item.addVertex(lon + size, lat, z);
+		item.addVertex(lon + size, lat + size, z);
+		item.addVertex(lon, lat + size, z);
+		item.addVertex(lon, lat, z);
+		return item;
+	}
+
+	private ItemFixture() {
+	}
+
+}
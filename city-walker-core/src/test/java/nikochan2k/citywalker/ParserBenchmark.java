@@ -0,0 +1,81 @@
+package nikochan2k.citywalker;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.citygml4j.CityGMLContext;
+import org.citygml4j.builder.jaxb.CityGMLBuilder;
+import org.citygml4j.xml.io.CityGMLInputFactory;
+import org.citygml4j.xml.io.reader.CityGMLReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+	private static final String TILE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<core:CityModel xmlns:core=\"http://www.opengis.net/citygml/2.0\""
+			+ " xmlns:bldg=\"http://www.opengis.net/citygml/building/2.0\" xmlns:gml=\"http://www.opengis.net/gml\">\n"
+			+ "<core:cityObjectMember><bldg:Building gml:id=\"b1\">\n"
+			+ "<bldg:measuredHeight uom=\"m\">10.5</bldg:measuredHeight>\n"
+			+ "<bldg:lod0RoofEdge><gml:MultiSurface><gml:surfaceMember><gml:Polygon><gml:exterior><gml:LinearRing>"
+			+ "<gml:posList srsDimension=\"3\">35.0 139.0 0 35.0 139.001 0 35.001 139.001 0 35.0 139.0 0</gml:posList>"
+			+ "</gml:LinearRing></gml:exterior></gml:Polygon></gml:surfaceMember></gml:MultiSurface></bldg:lod0RoofEdge>\n"
+			+ "</bldg:Building></core:cityObjectMember>\n" + "</core:CityModel>\n";
+
+	private CityGMLInputFactory cachedInputFactory;
+	private File tile;
+
+	@Setup
+	public void setup() throws Exception {
+		tile = File.createTempFile("tile", ".gml");
+		Files.write(tile.toPath(), TILE.getBytes(StandardCharsets.UTF_8));
+		cachedInputFactory = Parser.getBuilder().createCityGMLInputFactory();
+	}
+
+	@TearDown
+	public void tearDown() {
+		tile.delete();
+	}
+
+	private void read(CityGMLInputFactory in, Blackhole bh) throws Exception {
+		try (CityGMLReader reader = in.createCityGMLReader(tile)) {
+			while (reader.hasNext()) {
+				bh.consume(reader.nextFeature());
+			}
+		}
+	}
+
+	@Benchmark
+	public void builderPerFile(Blackhole bh) throws Exception {
+		CityGMLBuilder builder = CityGMLContext.getInstance().createCityGMLBuilder();
+		read(builder.createCityGMLInputFactory(), bh);
+	}
+
+	@Benchmark
+	public void cachedBuilder(Blackhole bh) throws Exception {
+		read(cachedInputFactory, bh);
+	}
+
+	public static void main(String... args) throws Exception {
+		org.openjdk.jmh.Main.main(args);
+	}
+
+}
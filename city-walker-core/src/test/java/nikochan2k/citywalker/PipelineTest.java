@@ -0,0 +1,89 @@
+package nikochan2k.citywalker;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class PipelineTest {
+
+	private static class FailingProcessor extends Processor {
+
+		final AtomicInteger count = new AtomicInteger();
+		private final int failAt;
+
+		FailingProcessor(int failAt) {
+			this.failAt = failAt;
+		}
+
+		@Override
+		protected void finish() {
+		}
+
+		@Override
+		protected void process(Item item) {
+			if (count.incrementAndGet() == failAt) {
+				throw new AssertionError("boom");
+			}
+		}
+
+	}
+
+	@Test
+	void testError() throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			// the queue holds 4, so the producer would block forever without the failure check
+			FailingProcessor processor = new FailingProcessor(1);
+			AssertionError error = assertThrows(AssertionError.class, () -> {
+				try (Pipeline pipeline = new Pipeline(processor, executor, 1)) {
+					for (int i = 0; i < 1000; i++) {
+						pipeline.submit(() -> new Item("bldg"));
+					}
+					pipeline.finish();
+				}
+			});
+			assertEquals("boom", error.getMessage());
+			assertEquals(1, processor.count.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void testFinish() throws InterruptedException {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			FailingProcessor processor = new FailingProcessor(-1);
+			try (Pipeline pipeline = new Pipeline(processor, executor, 2)) {
+				for (int i = 0; i < 100; i++) {
+					pipeline.submit(() -> new Item("bldg"));
+				}
+				pipeline.finish();
+			}
+			assertEquals(100, processor.count.get());
+
+			// a failed item is logged and skipped, it does not stop the file
+			processor.count.set(0);
+			try (Pipeline pipeline = new Pipeline(processor, executor, 2)) {
+				for (int i = 0; i < 10; i++) {
+					int n = i;
+					pipeline.submit(() -> {
+						if (n == 3) {
+							throw new IllegalStateException("bad building");
+						}
+						return new Item("bldg");
+					});
+				}
+				pipeline.finish();
+			}
+			assertEquals(9, processor.count.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
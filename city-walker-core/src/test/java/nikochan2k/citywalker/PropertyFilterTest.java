@@ -0,0 +1,42 @@
+package nikochan2k.citywalker;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class PropertyFilterTest {
+
+	@Test
+	void testAll() {
+		assertTrue(PropertyFilter.ALL.accept("class"));
+		assertTrue(PropertyFilter.ALL.accept("measuredHeight"));
+		assertTrue(PropertyFilter.ALL.accept("anyGenericAttribute"));
+	}
+
+	@Test
+	void testExclude() {
+		PropertyFilter filter = PropertyFilter.parse("-usage", " - function ");
+		assertFalse(filter.accept("usage"));
+		assertFalse(filter.accept("function"));
+		assertTrue(filter.accept("class"));
+		assertTrue(filter.accept("measuredHeight"));
+
+		filter = PropertyFilter.parse("class", "-measuredHeight", "-id");
+		assertTrue(filter.accept("class"));
+		assertFalse(filter.accept("measuredHeight"));
+		assertFalse(filter.accept("id"));
+	}
+
+	@Test
+	void testInclude() {
+		PropertyFilter filter = PropertyFilter.parse("class", " usage ", "");
+		assertTrue(filter.accept("class"));
+		assertTrue(filter.accept("usage"));
+		assertFalse(filter.accept("function"));
+		assertFalse(filter.accept("storeysAboveGround"));
+		assertFalse(filter.accept("buildingIDAttribute"));
+		assertTrue(filter.accept("measuredHeight"));
+		assertTrue(filter.accept("id"));
+	}
+
+}
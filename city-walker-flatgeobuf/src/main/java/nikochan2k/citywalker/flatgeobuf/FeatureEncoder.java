@@ -0,0 +1,220 @@
+package nikochan2k.citywalker.flatgeobuf;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.flatbuffers.FlatBufferBuilder;
+
+import nikochan2k.citywalker.Item;
+import nikochan2k.citywalker.ItemSpool.Type;
+
+class FeatureEncoder {
+
+	// GeometryType
+	private static final byte POLYGON = 3;
+
+	// ColumnType
+	private static final byte BOOL = 2;
+	private static final byte INT = 5;
+	private static final byte LONG = 7;
+	private static final byte DOUBLE = 10;
+	private static final byte STRING = 11;
+	private static final byte DATETIME = 13;
+
+	private static final Pattern EPSG = Pattern.compile("^EPSG:(\\d+)$", Pattern.CASE_INSENSITIVE);
+
+	private static byte getColumnType(Type type) {
+		switch (type) {
+		case BOOLEAN:
+			return BOOL;
+		case INTEGER:
+			return INT;
+		case LONG:
+			return LONG;
+		case DOUBLE:
+			return DOUBLE;
+		case DATE:
+			return DATETIME;
+		default:
+			return STRING;
+		}
+	}
+
+	private final FlatBufferBuilder builder = new FlatBufferBuilder(1024);
+	private final Map<String, Integer> indexes = new HashMap<>();
+	private final String[] names;
+	private ByteBuffer properties = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+	private final ByteBuffer sizePrefix = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+	private final Type[] types;
+
+	FeatureEncoder(Map<String, Type> schema) {
+		names = new String[schema.size()];
+		types = new Type[schema.size()];
+		int i = 0;
+		for (Entry<String, Type> entry : schema.entrySet()) {
+			names[i] = entry.getKey();
+			types[i] = entry.getValue();
+			indexes.put(names[i], i);
+			i++;
+		}
+	}
+
+	private int createCrs(String srs) {
+		if (srs == null) {
+			return 0;
+		}
+		Matcher m = EPSG.matcher(srs);
+		if (m.matches()) {
+			int org = builder.createString("EPSG");
+			builder.startTable(6);
+			builder.addOffset(0, org, 0);
+			builder.addInt(1, Integer.parseInt(m.group(1)), 0);
+			return builder.endTable();
+		}
+		int name = builder.createString(srs);
+		builder.startTable(6);
+		builder.addOffset(2, name, 0);
+		return builder.endTable();
+	}
+
+	private int createDoubleVector(double[] values, int from, int count, int stride) {
+		builder.startVector(8, count, 8);
+		for (int i = count - 1; 0 <= i; i--) {
+			builder.addDouble(values[from + i * stride]);
+		}
+		return builder.endVector();
+	}
+
+	private int createOffsetVector(int[] offsets) {
+		builder.startVector(4, offsets.length, 4);
+		for (int i = offsets.length - 1; 0 <= i; i--) {
+			builder.addOffset(offsets[i]);
+		}
+		return builder.endVector();
+	}
+
+	byte[] encodeHeader(String name, double[] envelope, long featuresCount, int indexNodeSize, String srs) {
+		builder.clear();
+		int nameOffset = builder.createString(name);
+		int envelopeOffset = createDoubleVector(envelope, 0, envelope.length, 1);
+		int[] columns = new int[names.length];
+		for (int i = 0; i < names.length; i++) {
+			int columnName = builder.createString(names[i]);
+			builder.startTable(11);
+			builder.addOffset(0, columnName, 0);
+			builder.addByte(1, getColumnType(types[i]), 0);
+			columns[i] = builder.endTable();
+		}
+		int columnsOffset = names.length == 0 ? 0 : createOffsetVector(columns);
+		int crsOffset = createCrs(srs);
+
+		builder.startTable(14);
+		builder.addOffset(0, nameOffset, 0);
+		builder.addOffset(1, envelopeOffset, 0);
+		builder.addByte(2, POLYGON, 0);
+		builder.addBoolean(3, true, false);
+		builder.addOffset(7, columnsOffset, 0);
+		builder.addLong(8, featuresCount, 0L);
+		builder.addShort(9, (short) indexNodeSize, PackedRTree.DEFAULT_NODE_SIZE);
+		builder.addOffset(10, crsOffset, 0);
+		builder.finish(builder.endTable());
+		return builder.sizedByteArray();
+	}
+
+	private void ensureProperties(int length) {
+		if (length <= properties.remaining()) {
+			return;
+		}
+		int capacity = Math.max(properties.capacity() * 2, properties.position() + length);
+		ByteBuffer newProperties = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+		properties.flip();
+		newProperties.put(properties);
+		properties = newProperties;
+	}
+
+	private void putString(String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		ensureProperties(4 + bytes.length);
+		properties.putInt(bytes.length);
+		properties.put(bytes);
+	}
+
+	private int writeProperties(Item item) {
+		properties.clear();
+		for (Entry<String, Serializable> entry : item.props.entrySet()) {
+			Serializable value = entry.getValue();
+			Integer index = indexes.get(entry.getKey());
+			if (value == null || index == null) {
+				continue;
+			}
+			ensureProperties(2 + 8);
+			properties.putShort((short) index.intValue());
+			switch (types[index]) {
+			case BOOLEAN:
+				properties.put((byte) (((Boolean) value) ? 1 : 0));
+				break;
+			case INTEGER:
+				properties.putInt(((Number) value).intValue());
+				break;
+			case LONG:
+				properties.putLong(((Number) value).longValue());
+				break;
+			case DOUBLE:
+				properties.putDouble(((Number) value).doubleValue());
+				break;
+			default:
+				putString(value.toString());
+				break;
+			}
+		}
+		int length = properties.position();
+		if (length == 0) {
+			return 0;
+		}
+		builder.startVector(1, length, 1);
+		for (int i = length - 1; 0 <= i; i--) {
+			builder.addByte(properties.get(i));
+		}
+		return builder.endVector();
+	}
+
+	int write(Item item, OutputStream os) throws IOException {
+		builder.clear();
+		double[] coords = item.getCoordinates();
+		int vertexCount = item.getVertexCount();
+		builder.startVector(8, vertexCount * 2, 8);
+		for (int i = vertexCount - 1; 0 <= i; i--) {
+			builder.addDouble(coords[i * 3 + 1]);
+			builder.addDouble(coords[i * 3]);
+		}
+		int xy = builder.endVector();
+		int z = createDoubleVector(coords, 2, vertexCount, 3);
+		builder.startTable(8);
+		builder.addOffset(1, xy, 0);
+		builder.addOffset(2, z, 0);
+		int geometry = builder.endTable();
+		int props = writeProperties(item);
+
+		builder.startTable(3);
+		builder.addOffset(0, geometry, 0);
+		builder.addOffset(1, props, 0);
+		builder.finish(builder.endTable());
+
+		ByteBuffer data = builder.dataBuffer();
+		int size = data.remaining();
+		sizePrefix.putInt(0, size);
+		os.write(sizePrefix.array());
+		os.write(data.array(), data.arrayOffset() + data.position(), size);
+		return 4 + size;
+	}
+
+}
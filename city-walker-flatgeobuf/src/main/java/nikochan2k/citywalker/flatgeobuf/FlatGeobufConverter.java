@@ -0,0 +1,134 @@
+package nikochan2k.citywalker.flatgeobuf;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.logging.Logger;
+
+import nikochan2k.citywalker.Converter;
+import nikochan2k.citywalker.Item;
+import nikochan2k.citywalker.ItemSpool;
+
+public class FlatGeobufConverter extends Converter {
+
+	static final String EXTENSION = ".fgb";
+	private static final Logger LOGGER = Logger.getLogger(FlatGeobufConverter.class.getName());
+	private static final byte[] MAGIC = { 0x66, 0x67, 0x62, 0x03, 0x66, 0x67, 0x62, 0x00 };
+
+	private final double[] bbox = new double[4];
+	private final double[] envelope = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+			Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+	private final String name;
+	private final int runSize;
+	private ItemSpool spool;
+	private final String srs;
+
+	protected FlatGeobufConverter(File input, File outputDir, String srs) {
+		this(input, outputDir, srs, HilbertSorter.DEFAULT_RUN_SIZE);
+	}
+
+	FlatGeobufConverter(File input, File outputDir, String srs, int runSize) {
+		// never compressed, readers fetch the header, index and features by HTTP range requests
+		super(input, outputDir);
+		String fileName = input.getName();
+		int lastIndex = fileName.lastIndexOf('.');
+		this.name = 0 < lastIndex ? fileName.substring(0, lastIndex) : fileName;
+		this.srs = srs;
+		this.runSize = runSize;
+		try {
+			spool = new ItemSpool();
+		} catch (IOException e) {
+			LOGGER.warning(e.toString());
+		}
+	}
+
+	@Override
+	public void finish() {
+		if (spool == null) {
+			return;
+		}
+		try {
+			write();
+		} catch (IOException e) {
+			LOGGER.warning(e.toString());
+		} finally {
+			spool.close();
+			spool = null;
+		}
+	}
+
+	@Override
+	protected String getExtension() {
+		return EXTENSION;
+	}
+
+	@Override
+	public void process(Item item) {
+		if (spool == null) {
+			return;
+		}
+		if (item.getVertexCount() == 0) {
+			LOGGER.fine("No geometry: " + item.id);
+			return;
+		}
+		item.getBounds(bbox);
+		envelope[0] = Math.min(envelope[0], bbox[0]);
+		envelope[1] = Math.min(envelope[1], bbox[1]);
+		envelope[2] = Math.max(envelope[2], bbox[2]);
+		envelope[3] = Math.max(envelope[3], bbox[3]);
+		try {
+			spool.append(item);
+		} catch (IOException e) {
+			LOGGER.warning(e.toString());
+			spool.close();
+			spool = null;
+		}
+	}
+
+	private void write() throws IOException {
+		int count = spool.getCount();
+		FeatureEncoder encoder = new FeatureEncoder(spool.getSchema());
+		if (count == 0) {
+			try (OutputStream os = openOutput()) {
+				writeHeader(os, encoder.encodeHeader(name, new double[0], 0, 0, srs));
+			}
+			return;
+		}
+
+		File features = File.createTempFile("citywalker", EXTENSION);
+		try (HilbertSorter sorter = new HilbertSorter(envelope[0], envelope[1], envelope[2], envelope[3], runSize);
+				PackedRTree index = new PackedRTree(count, PackedRTree.DEFAULT_NODE_SIZE)) {
+			spool.scan((position, item) -> {
+				item.getBounds(bbox);
+				sorter.add(position, bbox[0], bbox[1], bbox[2], bbox[3]);
+			});
+			try (OutputStream os = new BufferedOutputStream(new FileOutputStream(features), 65536)) {
+				long[] offset = { 0 };
+				sorter.sort((position, minX, minY, maxX, maxY) -> {
+					index.add(minX, minY, maxX, maxY, offset[0]);
+					offset[0] += encoder.write(spool.read(position), os);
+				});
+			}
+
+			try (OutputStream os = openOutput()) {
+				writeHeader(os, encoder.encodeHeader(name, envelope, count, PackedRTree.DEFAULT_NODE_SIZE, srs));
+				index.write(os);
+				Files.copy(features.toPath(), os);
+			}
+		} finally {
+			ItemSpool.deleteTempFile(features);
+		}
+	}
+
+	private void writeHeader(OutputStream os, byte[] header) throws IOException {
+		os.write(MAGIC);
+		os.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(header.length).array());
+		os.write(header);
+	}
+
+}
@@ -0,0 +1,39 @@
+package nikochan2k.citywalker.flatgeobuf;
+
+import java.io.File;
+import java.util.logging.Logger;
+
+import nikochan2k.citywalker.Compression;
+import nikochan2k.citywalker.Converter;
+import nikochan2k.citywalker.Factory;
+import nikochan2k.citywalker.Processor;
+
+public class FlatGeobufFactory extends Factory {
+
+	private static final Logger LOGGER = Logger.getLogger(FlatGeobufFactory.class.getName());
+
+	@Override
+	public File getOutput(File input) {
+		return Converter.getOutput(input, getOutputDir(), FlatGeobufConverter.EXTENSION);
+	}
+
+	@Override
+	public String getTypeName() {
+		return "flatgeobuf";
+	}
+
+	@Override
+	public Processor createProcessor(File input, String srs) {
+		return new FlatGeobufConverter(input, this.getOutputDir(), srs);
+	}
+
+	@Override
+	public void setCompression(Compression compression) {
+		// a compressed .fgb can not be read by range, so the index would be useless
+		if (compression != Compression.NONE) {
+			LOGGER.warning("FlatGeobuf is always written uncompressed, ignoring " + compression.getFormat());
+		}
+		super.setCompression(Compression.NONE);
+	}
+
+}
@@ -0,0 +1,185 @@
+package nikochan2k.citywalker.flatgeobuf;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import nikochan2k.citywalker.ItemSpool;
+
+class HilbertSorter implements Closeable {
+
+	interface Visitor {
+		void visit(long position, double minX, double minY, double maxX, double maxY) throws IOException;
+	}
+
+	private static class Run implements Closeable {
+
+		private final DataInputStream in;
+		private final int index;
+		int hilbert;
+		double maxX;
+		double maxY;
+		double minX;
+		double minY;
+		long position;
+
+		Run(File file, int index) throws IOException {
+			this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+			this.index = index;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+
+		boolean next() throws IOException {
+			try {
+				hilbert = in.readInt();
+			} catch (EOFException e) {
+				return false;
+			}
+			position = in.readLong();
+			minX = in.readDouble();
+			minY = in.readDouble();
+			maxX = in.readDouble();
+			maxY = in.readDouble();
+			return true;
+		}
+
+	}
+
+	static final int DEFAULT_RUN_SIZE = 1 << 18;
+
+	private static int compare(Run a, Run b) {
+		int result = Integer.compareUnsigned(b.hilbert, a.hilbert);
+		if (result != 0) {
+			return result;
+		}
+		return Integer.compare(a.index, b.index);
+	}
+
+	private static int hilbertOf(long key) {
+		return ~(int) (key >>> 31);
+	}
+
+	private final double[] boxes;
+	private final double height;
+	private final long[] keys;
+	private final double minX;
+	private final double minY;
+	private final long[] positions;
+	private final List<File> runs = new ArrayList<>();
+	private int size;
+	private final double width;
+
+	HilbertSorter(double minX, double minY, double maxX, double maxY) {
+		this(minX, minY, maxX, maxY, DEFAULT_RUN_SIZE);
+	}
+
+	HilbertSorter(double minX, double minY, double maxX, double maxY, int runSize) {
+		this.minX = minX;
+		this.minY = minY;
+		this.width = maxX - minX;
+		this.height = maxY - minY;
+		this.keys = new long[runSize];
+		this.positions = new long[runSize];
+		this.boxes = new double[runSize * 4];
+	}
+
+	void add(long position, double minX, double minY, double maxX, double maxY) throws IOException {
+		if (size == keys.length) {
+			spill();
+		}
+		int h = PackedRTree.hilbert((minX + maxX) / 2, (minY + maxY) / 2, this.minX, this.minY, width, height);
+		// descending hilbert order, then insertion order
+		keys[size] = ((~h & 0xFFFFFFFFL) << 31) | size;
+		positions[size] = position;
+		int b = size * 4;
+		boxes[b] = minX;
+		boxes[b + 1] = minY;
+		boxes[b + 2] = maxX;
+		boxes[b + 3] = maxY;
+		size++;
+	}
+
+	@Override
+	public void close() {
+		for (File run : runs) {
+			ItemSpool.deleteTempFile(run);
+		}
+		runs.clear();
+	}
+
+	private void merge(Visitor visitor) throws IOException {
+		List<Run> opened = new ArrayList<>(runs.size());
+		try {
+			PriorityQueue<Run> queue = new PriorityQueue<>(runs.size(), HilbertSorter::compare);
+			for (File file : runs) {
+				Run run = new Run(file, opened.size());
+				opened.add(run);
+				if (run.next()) {
+					queue.add(run);
+				}
+			}
+			while (!queue.isEmpty()) {
+				Run run = queue.poll();
+				visitor.visit(run.position, run.minX, run.minY, run.maxX, run.maxY);
+				if (run.next()) {
+					queue.add(run);
+				}
+			}
+		} finally {
+			for (Run run : opened) {
+				run.close();
+			}
+		}
+	}
+
+	void sort(Visitor visitor) throws IOException {
+		if (runs.isEmpty()) {
+			Arrays.sort(keys, 0, size);
+			for (int i = 0; i < size; i++) {
+				int index = (int) (keys[i] & Integer.MAX_VALUE);
+				int b = index * 4;
+				visitor.visit(positions[index], boxes[b], boxes[b + 1], boxes[b + 2], boxes[b + 3]);
+			}
+			size = 0;
+			return;
+		}
+		spill();
+		merge(visitor);
+	}
+
+	private void spill() throws IOException {
+		Arrays.sort(keys, 0, size);
+		File file = File.createTempFile("citywalker", ".run");
+		runs.add(file);
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(file), 65536))) {
+			for (int i = 0; i < size; i++) {
+				int index = (int) (keys[i] & Integer.MAX_VALUE);
+				int b = index * 4;
+				out.writeInt(hilbertOf(keys[i]));
+				out.writeLong(positions[index]);
+				out.writeDouble(boxes[b]);
+				out.writeDouble(boxes[b + 1]);
+				out.writeDouble(boxes[b + 2]);
+				out.writeDouble(boxes[b + 3]);
+			}
+		}
+		size = 0;
+	}
+
+}
@@ -0,0 +1,235 @@
+package nikochan2k.citywalker.flatgeobuf;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import nikochan2k.citywalker.ItemSpool;
+
+class PackedRTree implements Closeable {
+
+	private static class NodeReader implements Closeable {
+
+		private final ByteBuffer buffer = ByteBuffer.allocate(NODE_ITEM_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+		private final DataInputStream in;
+		double maxX;
+		double maxY;
+		double minX;
+		double minY;
+
+		NodeReader(File file) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+
+		void next() throws IOException {
+			in.readFully(buffer.array());
+			buffer.clear();
+			minX = buffer.getDouble();
+			minY = buffer.getDouble();
+			maxX = buffer.getDouble();
+			maxY = buffer.getDouble();
+		}
+
+	}
+
+	private static class NodeWriter implements Closeable {
+
+		private final ByteBuffer buffer = ByteBuffer.allocate(NODE_ITEM_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+		private final OutputStream out;
+
+		NodeWriter(File file) throws IOException {
+			out = new BufferedOutputStream(new FileOutputStream(file), 65536);
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+
+		void write(double minX, double minY, double maxX, double maxY, long offset) throws IOException {
+			buffer.clear();
+			buffer.putDouble(minX);
+			buffer.putDouble(minY);
+			buffer.putDouble(maxX);
+			buffer.putDouble(maxY);
+			buffer.putLong(offset);
+			out.write(buffer.array());
+		}
+
+	}
+
+	static final int DEFAULT_NODE_SIZE = 16;
+	static final int NODE_ITEM_LENGTH = 40;
+	private static final int HILBERT_MAX = (1 << 16) - 1;
+	private static final Logger LOGGER = Logger.getLogger(PackedRTree.class.getName());
+
+	static int hilbert(double x, double y, double minX, double minY, double width, double height) {
+		int hx = 0;
+		int hy = 0;
+		if (width != 0.0) {
+			hx = (int) Math.floor(HILBERT_MAX * (x - minX) / width);
+		}
+		if (height != 0.0) {
+			hy = (int) Math.floor(HILBERT_MAX * (y - minY) / height);
+		}
+		return hilbert(hx, hy);
+	}
+
+	static int hilbert(int x, int y) {
+		int a = x ^ y;
+		int b = 0xFFFF ^ a;
+		int c = 0xFFFF ^ (x | y);
+		int d = x & (y ^ 0xFFFF);
+
+		int A = a | (b >>> 1);
+		int B = (a >>> 1) ^ a;
+		int C = ((c >>> 1) ^ (b & (d >>> 1))) ^ c;
+		int D = ((a & (c >>> 1)) ^ (d >>> 1)) ^ d;
+
+		a = A;
+		b = B;
+		c = C;
+		d = D;
+		A = ((a & (a >>> 2)) ^ (b & (b >>> 2)));
+		B = ((a & (b >>> 2)) ^ (b & ((a ^ b) >>> 2)));
+		C ^= ((a & (c >>> 2)) ^ (b & (d >>> 2)));
+		D ^= ((b & (c >>> 2)) ^ ((a ^ b) & (d >>> 2)));
+
+		a = A;
+		b = B;
+		c = C;
+		d = D;
+		A = ((a & (a >>> 4)) ^ (b & (b >>> 4)));
+		B = ((a & (b >>> 4)) ^ (b & ((a ^ b) >>> 4)));
+		C ^= ((a & (c >>> 4)) ^ (b & (d >>> 4)));
+		D ^= ((b & (c >>> 4)) ^ ((a ^ b) & (d >>> 4)));
+
+		a = A;
+		b = B;
+		c = C;
+		d = D;
+		C ^= ((a & (c >>> 8)) ^ (b & (d >>> 8)));
+		D ^= ((b & (c >>> 8)) ^ ((a ^ b) & (d >>> 8)));
+
+		a = C ^ (C >>> 1);
+		b = D ^ (D >>> 1);
+
+		int i0 = x ^ y;
+		int i1 = b | (0xFFFF ^ (i0 | a));
+
+		i0 = (i0 | (i0 << 8)) & 0x00FF00FF;
+		i0 = (i0 | (i0 << 4)) & 0x0F0F0F0F;
+		i0 = (i0 | (i0 << 2)) & 0x33333333;
+		i0 = (i0 | (i0 << 1)) & 0x55555555;
+
+		i1 = (i1 | (i1 << 8)) & 0x00FF00FF;
+		i1 = (i1 | (i1 << 4)) & 0x0F0F0F0F;
+		i1 = (i1 | (i1 << 2)) & 0x33333333;
+		i1 = (i1 | (i1 << 1)) & 0x55555555;
+
+		return (i1 << 1) | i0;
+	}
+
+	static long[][] levelBounds(long numItems, int nodeSize) {
+		List<Long> levelNumNodes = new ArrayList<>();
+		long n = numItems;
+		long numNodes = n;
+		levelNumNodes.add(n);
+		do {
+			n = (n + nodeSize - 1) / nodeSize;
+			numNodes += n;
+			levelNumNodes.add(n);
+		} while (n != 1);
+		long[][] bounds = new long[levelNumNodes.size()][];
+		for (int i = 0; i < bounds.length; i++) {
+			long size = levelNumNodes.get(i);
+			numNodes -= size;
+			bounds[i] = new long[] { numNodes, numNodes + size };
+		}
+		return bounds;
+	}
+
+	private final long[][] levelBounds;
+	private final File[] levels;
+	private final int nodeSize;
+	private NodeWriter leaves;
+
+	PackedRTree(long numItems, int nodeSize) throws IOException {
+		this.nodeSize = nodeSize;
+		this.levelBounds = levelBounds(numItems, nodeSize);
+		this.levels = new File[levelBounds.length];
+		levels[0] = File.createTempFile("citywalker", ".node");
+		leaves = new NodeWriter(levels[0]);
+	}
+
+	void add(double minX, double minY, double maxX, double maxY, long offset) throws IOException {
+		leaves.write(minX, minY, maxX, maxY, offset);
+	}
+
+	@Override
+	public void close() {
+		if (leaves != null) {
+			try {
+				leaves.close();
+			} catch (IOException e) {
+				LOGGER.warning(e.toString());
+			}
+			leaves = null;
+		}
+		for (File level : levels) {
+			ItemSpool.deleteTempFile(level);
+		}
+	}
+
+	private void generateLevel(int level) throws IOException {
+		levels[level + 1] = File.createTempFile("citywalker", ".node");
+		try (NodeReader in = new NodeReader(levels[level]); NodeWriter out = new NodeWriter(levels[level + 1])) {
+			long pos = levelBounds[level][0];
+			long end = levelBounds[level][1];
+			while (pos < end) {
+				long first = pos;
+				double minX = Double.POSITIVE_INFINITY;
+				double minY = Double.POSITIVE_INFINITY;
+				double maxX = Double.NEGATIVE_INFINITY;
+				double maxY = Double.NEGATIVE_INFINITY;
+				for (int j = 0; j < nodeSize && pos < end; j++, pos++) {
+					in.next();
+					minX = Math.min(minX, in.minX);
+					minY = Math.min(minY, in.minY);
+					maxX = Math.max(maxX, in.maxX);
+					maxY = Math.max(maxY, in.maxY);
+				}
+				out.write(minX, minY, maxX, maxY, first);
+			}
+		}
+	}
+
+	void write(OutputStream os) throws IOException {
+		leaves.close();
+		leaves = null;
+		for (int i = 0; i < levels.length - 1; i++) {
+			generateLevel(i);
+		}
+		for (int i = levels.length - 1; 0 <= i; i--) {
+			Files.copy(levels[i].toPath(), os);
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+package nikochan2k.citywalker.flatgeobuf;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nikochan2k.citywalker.Compression;
+import nikochan2k.citywalker.ItemFixture;
+
+class FlatGeobufConverterTest {
+
+	private static final int COUNT = 100;
+
+	@TempDir
+	File dir;
+
+	private byte[] convert(File dir, int runSize) throws IOException {
+		File input = new File(dir, "test.gml");
+		FlatGeobufConverter converter = new FlatGeobufConverter(input, dir, "EPSG:4326", runSize);
+		for (int i = 0; i < COUNT; i++) {
+			double x = 139 + (i % 10) * 0.01;
+			double y = 35 + (i / 10) * 0.01;
+			converter.process(ItemFixture.building(i, x, y, 0.005, 10));
+		}
+		converter.finish();
+		return Files.readAllBytes(new File(dir, "test" + FlatGeobufConverter.EXTENSION).toPath());
+	}
+
+	@Test
+	void testCompression() {
+		FlatGeobufFactory factory = new FlatGeobufFactory();
+		factory.setCompression(Compression.gzip(6));
+		assertSame(Compression.NONE, factory.getCompression());
+		assertEquals(new File(dir, "test" + FlatGeobufConverter.EXTENSION), factory.getOutput(new File(dir, "test.gml")));
+	}
+
+	@Test
+	void testIndex() throws IOException {
+		byte[] bytes = convert(dir, HilbertSorter.DEFAULT_RUN_SIZE);
+		ByteBuffer bb = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(0x03626766, bb.getInt(0));
+		assertEquals(0x00626766, bb.getInt(4));
+
+		int indexStart = 12 + bb.getInt(8);
+		long[][] levels = PackedRTree.levelBounds(COUNT, PackedRTree.DEFAULT_NODE_SIZE);
+		long numNodes = levels[0][1];
+		int featuresStart = indexStart + (int) numNodes * PackedRTree.NODE_ITEM_LENGTH;
+
+		// root covers every feature
+		assertEquals(139.0, bb.getDouble(indexStart), 1e-9);
+		assertEquals(35.0, bb.getDouble(indexStart + 8), 1e-9);
+		assertEquals(139.095, bb.getDouble(indexStart + 16), 1e-9);
+		assertEquals(35.095, bb.getDouble(indexStart + 24), 1e-9);
+
+		// leaves point at consecutive size-prefixed features
+		long expected = 0;
+		for (long i = levels[0][0]; i < levels[0][1]; i++) {
+			int node = indexStart + (int) i * PackedRTree.NODE_ITEM_LENGTH;
+			assertEquals(expected, bb.getLong(node + 32));
+			expected += 4 + bb.getInt(featuresStart + (int) expected);
+		}
+		assertEquals(bytes.length, featuresStart + expected);
+
+		// spilling runs to disk must give the same file
+		File spilled = new File(dir, "spilled");
+		assertTrue(spilled.mkdir());
+		assertArrayEquals(bytes, convert(spilled, 7));
+	}
+
+	@Test
+	void testHilbert() {
+		assertEquals(0, PackedRTree.hilbert(0, 0));
+		assertNotEquals(PackedRTree.hilbert(0, 65535), PackedRTree.hilbert(65535, 0));
+		long[][] levels = PackedRTree.levelBounds(1, PackedRTree.DEFAULT_NODE_SIZE);
+		assertEquals(2, levels.length);
+		assertArrayEquals(new long[] { 1, 2 }, levels[0]);
+		assertArrayEquals(new long[] { 0, 1 }, levels[1]);
+	}
+
+}
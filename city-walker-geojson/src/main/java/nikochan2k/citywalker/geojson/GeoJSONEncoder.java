@@ -0,0 +1,197 @@
+package nikochan2k.citywalker.geojson;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.Writer;
+import java.net.URI;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Map.Entry;
+
+import nikochan2k.citywalker.Item;
+
+class GeoJSONEncoder {
+
+	private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15 };
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ssX");
+	private static final String[] REPLACEMENT_CHARS;
+
+	static {
+		REPLACEMENT_CHARS = new String[128];
+		for (int i = 0; i <= 0x1f; i++) {
+			REPLACEMENT_CHARS[i] = String.format("\\u%04x", i);
+		}
+		REPLACEMENT_CHARS['"'] = "\\\"";
+		REPLACEMENT_CHARS['\\'] = "\\\\";
+		REPLACEMENT_CHARS['\t'] = "\\t";
+		REPLACEMENT_CHARS['\b'] = "\\b";
+		REPLACEMENT_CHARS['\n'] = "\\n";
+		REPLACEMENT_CHARS['\r'] = "\\r";
+		REPLACEMENT_CHARS['\f'] = "\\f";
+		REPLACEMENT_CHARS['<'] = "\\u003c";
+		REPLACEMENT_CHARS['>'] = "\\u003e";
+		REPLACEMENT_CHARS['&'] = "\\u0026";
+		REPLACEMENT_CHARS['='] = "\\u003d";
+		REPLACEMENT_CHARS['\''] = "\\u0027";
+	}
+
+	private final StringBuilder buf = new StringBuilder(4096);
+	private char[] chars = new char[4096];
+	private final char[] digits = new char[24];
+
+	CharSequence encode(Item item) {
+		buf.setLength(0);
+		buf.append("{\"type\":\"Feature\"");
+		if (item.id != null) {
+			buf.append(",\"id\":");
+			appendString(item.id);
+		}
+		buf.append(",\"geometry\":{\"type\":\"Polygon\",\"coordinates\":[[");
+		double[] coords = item.getCoordinates();
+		for (int i = 0, end = item.getVertexCount() * 3; i < end; i += 3) {
+			if (i != 0) {
+				buf.append(',');
+			}
+			buf.append('[');
+			appendDouble(coords[i]);
+			buf.append(',');
+			appendDouble(coords[i + 1]);
+			buf.append(',');
+			appendDouble(coords[i + 2]);
+			buf.append(']');
+		}
+		buf.append("]]},\"properties\":{");
+		boolean first = true;
+		for (Entry<String, Serializable> entry : item.props.entrySet()) {
+			Serializable value = entry.getValue();
+			if (!(value instanceof String || value instanceof Number || value instanceof Boolean
+					|| value instanceof LocalDate || value instanceof URI)) {
+				continue;
+			}
+			if (!first) {
+				buf.append(',');
+			}
+			first = false;
+			appendString(entry.getKey());
+			buf.append(':');
+			if (value instanceof String) {
+				appendString((String) value);
+			} else if (value instanceof Number) {
+				appendNumber((Number) value);
+			} else if (value instanceof Boolean) {
+				buf.append(((Boolean) value).booleanValue());
+			} else if (value instanceof LocalDate) {
+				LocalDate date = (LocalDate) value;
+				buf.append('"');
+				DATE_FORMAT.formatTo(date.atStartOfDay().atOffset(ZoneOffset.UTC), buf);
+				buf.append('"');
+			} else {
+				appendString(((URI) value).toASCIIString());
+			}
+		}
+		buf.append("}}");
+		return buf;
+	}
+
+	void write(Item item, Writer writer) throws IOException {
+		encode(item);
+		int length = buf.length();
+		if (chars.length < length) {
+			chars = new char[Math.max(length, chars.length * 2)];
+		}
+		buf.getChars(0, length, chars, 0);
+		writer.write(chars, 0, length);
+	}
+
+	// Same text as Double.toString for values with at most 15 significant digits
+	// in its plain notation range. r / 10^k is exactly rounded as r < 2^53, so
+	// it round-trips only if r is the one k digit decimal of the value.
+	private void appendDouble(double value) {
+		double abs = Math.abs(value);
+		if (abs < 1e-3 || 1e7 <= abs) {
+			buf.append(value);
+			return;
+		}
+		int intDigits = 1;
+		while (POWERS_OF_TEN[intDigits] <= abs) {
+			intDigits++;
+		}
+		int k = 15 - intDigits;
+		long r = Math.round(abs * POWERS_OF_TEN[k]);
+		if (r / POWERS_OF_TEN[k] != abs) {
+			buf.append(value);
+			return;
+		}
+		while (1 < k && r % 10 == 0) {
+			r /= 10;
+			k--;
+		}
+		int pos = digits.length;
+		for (int i = 0; i < k; i++) {
+			digits[--pos] = (char) ('0' + r % 10);
+			r /= 10;
+		}
+		digits[--pos] = '.';
+		do {
+			digits[--pos] = (char) ('0' + r % 10);
+			r /= 10;
+		} while (r != 0);
+		if (value < 0) {
+			digits[--pos] = '-';
+		}
+		buf.append(digits, pos, digits.length - pos);
+	}
+
+	private void appendNumber(Number value) {
+		if (value instanceof Double || value instanceof Float) {
+			double d = value.doubleValue();
+			if (Double.isNaN(d) || Double.isInfinite(d)) {
+				// NaN and Infinity are not valid JSON
+				buf.append("null");
+			} else if (value instanceof Double) {
+				appendDouble(d);
+			} else {
+				buf.append(value.toString());
+			}
+		} else if (value instanceof Integer || value instanceof Long || value instanceof Short
+				|| value instanceof Byte) {
+			buf.append(value.longValue());
+		} else {
+			buf.append(value.toString());
+		}
+	}
+
+	private void appendString(String value) {
+		buf.append('"');
+		int last = 0;
+		int length = value.length();
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			String replacement;
+			if (c < 128) {
+				replacement = REPLACEMENT_CHARS[c];
+				if (replacement == null) {
+					continue;
+				}
+			} else if (c == '\u2028') {
+				replacement = "\\u2028";
+			} else if (c == '\u2029') {
+				replacement = "\\u2029";
+			} else {
+				continue;
+			}
+			if (last < i) {
+				buf.append(value, last, i);
+			}
+			buf.append(replacement);
+			last = i + 1;
+		}
+		if (last < length) {
+			buf.append(value, last, length);
+		}
+		buf.append('"');
+	}
+
+}
@@ -2,11 +2,17 @@ package nikochan2k.citywalker.geojson;
 
 import java.io.File;
 
+import nikochan2k.citywalker.Converter;
 import nikochan2k.citywalker.Factory;
 import nikochan2k.citywalker.Processor;
 
 public class GeoJSONFactory extends Factory {
 
+	@Override
+	public File getOutput(File input) {
+		return Converter.getOutput(input, getOutputDir(), GeoJSONConverter.EXTENSION + getCompression().getExtension());
+	}
+
 	@Override
 	public String getTypeName() {
 		return "geojson";
@@ -14,7 +20,7 @@ public class GeoJSONFactory extends Factory {
 
 	@Override
 	public Processor createProcessor(File input, String srs) {
-		return new GeoJSONConverter(input, this.getOutputDir(), srs);
+		return new GeoJSONConverter(input, this.getOutputDir(), srs, this.getCompression());
 	}
 
 }
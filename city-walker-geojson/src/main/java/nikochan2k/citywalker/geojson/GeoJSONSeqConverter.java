@@ -0,0 +1,74 @@
+package nikochan2k.citywalker.geojson;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Logger;
+
+import nikochan2k.citywalker.Compression;
+import nikochan2k.citywalker.Converter;
+import nikochan2k.citywalker.Item;
+
+public class GeoJSONSeqConverter extends Converter {
+
+	static final String EXTENSION = ".geojsonl";
+	private static final Logger LOGGER = Logger.getLogger(GeoJSONSeqConverter.class.getName());
+
+	private final GeoJSONEncoder encoder = new GeoJSONEncoder();
+	private Writer writer;
+
+	protected GeoJSONSeqConverter(File input, File outputDir, String srs) {
+		this(input, outputDir, srs, Compression.NONE);
+	}
+
+	protected GeoJSONSeqConverter(File input, File outputDir, String srs, Compression compression) {
+		super(input, outputDir, compression);
+		try {
+			writer = new BufferedWriter(new OutputStreamWriter(openOutput(), StandardCharsets.UTF_8), 65536);
+		} catch (IOException e) {
+			LOGGER.warning(e.toString());
+			close();
+		}
+	}
+
+	private void close() {
+		if (writer == null) {
+			return;
+		}
+		try {
+			writer.close();
+		} catch (IOException e) {
+			LOGGER.warning(e.toString());
+		}
+		writer = null;
+	}
+
+	@Override
+	public void finish() {
+		close();
+	}
+
+	@Override
+	protected String getExtension() {
+		return EXTENSION;
+	}
+
+	@Override
+	public void process(Item item) {
+		if (writer == null) {
+			return;
+		}
+		try {
+			// the encoder escapes line breaks, so every feature stays on its own line
+			encoder.write(item, writer);
+			writer.write('\n');
+		} catch (IOException e) {
+			LOGGER.warning(e.toString());
+			close();
+		}
+	}
+
+}
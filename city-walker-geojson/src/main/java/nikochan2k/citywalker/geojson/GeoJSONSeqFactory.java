@@ -0,0 +1,27 @@
+package nikochan2k.citywalker.geojson;
+
+import java.io.File;
+
+import nikochan2k.citywalker.Converter;
+import nikochan2k.citywalker.Factory;
+import nikochan2k.citywalker.Processor;
+
+public class GeoJSONSeqFactory extends Factory {
+
+	@Override
+	public File getOutput(File input) {
+		return Converter.getOutput(input, getOutputDir(),
+				GeoJSONSeqConverter.EXTENSION + getCompression().getExtension());
+	}
+
+	@Override
+	public String getTypeName() {
+		return "geojsonseq";
+	}
+
+	@Override
+	public Processor createProcessor(File input, String srs) {
+		return new GeoJSONSeqConverter(input, this.getOutputDir(), srs, this.getCompression());
+	}
+
+}
@@ -1,30 +1,129 @@
 package nikochan2k.citywalker.geojson;
 
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 
 import nikochan2k.citywalker.CityWalkerException;
+import nikochan2k.citywalker.Compression;
 import nikochan2k.citywalker.Parser;
 
 class GeoJSONConverterTest {
 
+	@TempDir
+	File dir;
+
 	private void parse(String name, boolean flip) throws CityWalkerException {
+		parse(name, flip, false);
+	}
+
+	private void parse(String name, boolean flip, boolean streaming) throws CityWalkerException {
+		parse(name, flip, streaming, null);
+	}
+
+	private void parse(String name, boolean flip, boolean streaming, File outputDir) throws CityWalkerException {
 		URL url = GeoJSONConverterTest.class.getResource(name);
 		String path = url.getFile();
 		File file = new File(path);
 		GeoJSONFactory factory = new GeoJSONFactory();
 		factory.setFlipXY(flip);
+		factory.setOutputDir(outputDir);
+		factory.setStreaming(streaming);
 		Parser parser = new Parser(factory);
 		parser.parse(file);
 	}
 
+	private List<JsonElement> readFeatures(File file) throws IOException {
+		try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+			JsonObject json = new Gson().fromJson(reader, JsonObject.class);
+			List<JsonElement> features = new ArrayList<>();
+			json.getAsJsonArray("features").forEach(features::add);
+			features.sort(Comparator.comparing(JsonElement::toString));
+			return features;
+		}
+	}
+
 	@Test
 	void testPlateau() throws CityWalkerException {
 		parse("53392633_bldg_6697_op2.gml", true);
 	}
 
+	@Test
+	void testPlateauStreaming() throws CityWalkerException, IOException {
+		File loadedDir = new File(dir, "loaded");
+		File streamedDir = new File(dir, "streamed");
+		loadedDir.mkdirs();
+		streamedDir.mkdirs();
+		parse("53392633_bldg_6697_op2.gml", true, false, loadedDir);
+		parse("53392633_bldg_6697_op2.gml", true, true, streamedDir);
+		List<JsonElement> expected = readFeatures(new File(loadedDir, "53392633_bldg_6697_op2.json"));
+		List<JsonElement> actual = readFeatures(new File(streamedDir, "53392633_bldg_6697_op2.json"));
+		assertTrue(0 < expected.size());
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i), actual.get(i));
+		}
+	}
+
+	@Test
+	void testPlateauGzip() throws CityWalkerException, IOException {
+		URL url = GeoJSONConverterTest.class.getResource("53392633_bldg_6697_op2.gml");
+		File file = new File(url.getFile());
+		File gz = new File(file.getParentFile(), "53392633_bldg_6697_op2.json.gz");
+		gz.delete();
+		GeoJSONFactory factory = new GeoJSONFactory();
+		factory.setFlipXY(true);
+		factory.setCompression(Compression.gzip(9));
+		Parser parser = new Parser(factory);
+		parser.parse(file);
+		try (InputStream is = new GZIPInputStream(new FileInputStream(gz))) {
+			byte[] head = new byte[8];
+			assertEquals(head.length, is.read(head));
+			assertEquals("{\"type\":", new String(head, StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	void testPlateauSeq() throws CityWalkerException, IOException {
+		URL url = GeoJSONConverterTest.class.getResource("53392633_bldg_6697_op2.gml");
+		File file = new File(url.getFile());
+		File seq = new File(file.getParentFile(), "53392633_bldg_6697_op2.geojsonl");
+		seq.delete();
+		GeoJSONSeqFactory factory = new GeoJSONSeqFactory();
+		factory.setFlipXY(true);
+		Parser parser = new Parser(factory);
+		parser.parse(file);
+		int count = 0;
+		try (BufferedReader reader = Files.newBufferedReader(seq.toPath(), StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				assertTrue(line.startsWith("{\"type\":\"Feature\""));
+				assertTrue(line.endsWith("}}"));
+				count++;
+			}
+		}
+		assertTrue(0 < count);
+	}
+
 	@Test
 	void testKashikaOrJp() throws CityWalkerException {
 		parse("533954364.xml", false);
@@ -0,0 +1,137 @@
+package nikochan2k.citywalker.geojson;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.URI;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.filosganga.geogson.gson.GeometryAdapterFactory;
+import com.github.filosganga.geogson.model.Feature;
+import com.github.filosganga.geogson.model.LinearRing;
+import com.github.filosganga.geogson.model.Point;
+import com.github.filosganga.geogson.model.Polygon;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+
+import nikochan2k.citywalker.Item;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeoJSONEncoderBenchmark {
+
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ssX");
+	private static final int FEATURES = 1000;
+
+	private final GeoJSONEncoder encoder = new GeoJSONEncoder();
+	private final Gson gson = new GsonBuilder().registerTypeAdapterFactory(new GeometryAdapterFactory()).create();
+	private Item[] items;
+	private final CharArrayWriter writer = new CharArrayWriter(1 << 20);
+
+	// posList values are short decimals, like 8 decimal degrees and millimetre heights
+	private static double round(double value, double scale) {
+		return Math.round(value * scale) / scale;
+	}
+
+	@Setup
+	public void setup() {
+		Random random = new Random(0);
+		items = new Item[FEATURES];
+		for (int i = 0; i < FEATURES; i++) {
+			Item item = new Item("bldg_" + i);
+			double lon = 139.7 + random.nextDouble() * 0.1;
+			double lat = 35.6 + random.nextDouble() * 0.1;
+			double z = random.nextDouble() * 40;
+			for (int v = 0; v < 8; v++) {
+				double a = Math.PI * 2 * v / 8;
+				item.addVertex(round(lon + Math.cos(a) * 0.0001, 1e8), round(lat + Math.sin(a) * 0.0001, 1e8), round(z, 1e3));
+			}
+			item.addVertex(round(lon + 0.0001, 1e8), round(lat, 1e8), round(z, 1e3));
+			item.props.put("measuredHeight", round(random.nextDouble() * 30, 10));
+			item.props.put("id", item.id);
+			item.props.put("class", "普通建物");
+			item.props.put("usage", "業務施設");
+			item.props.put("storeysAboveGround", random.nextInt(10) + 1);
+			item.props.put("yearOfConstruction", LocalDate.of(1950 + random.nextInt(70), 1, 1));
+			item.props.put("uri", URI.create("https://example.com/bldg/" + i));
+			items[i] = item;
+		}
+	}
+
+	@Benchmark
+	public void encoder(Blackhole bh) throws IOException {
+		writer.reset();
+		for (Item item : items) {
+			encoder.write(item, writer);
+			writer.write(',');
+		}
+		bh.consume(writer.size());
+	}
+
+	@Benchmark
+	public void geogson(Blackhole bh) {
+		writer.reset();
+		for (Item item : items) {
+			gson.toJson(toFeature(item), Feature.class, writer);
+			writer.write(',');
+		}
+		bh.consume(writer.size());
+	}
+
+	// the object graph GeoJSONConverter built per building before GeoJSONEncoder
+	private Feature toFeature(Item item) {
+		double[] coords = item.getCoordinates();
+		List<Point> points = new ArrayList<>(item.getVertexCount());
+		for (int i = 0, end = item.getVertexCount() * 3; i < end; i += 3) {
+			points.add(Point.from(coords[i], coords[i + 1], coords[i + 2]));
+		}
+		Map<String, JsonElement> map = new LinkedHashMap<>();
+		for (Entry<String, Serializable> entry : item.props.entrySet()) {
+			Serializable value = entry.getValue();
+			if (value instanceof String) {
+				map.put(entry.getKey(), new JsonPrimitive((String) value));
+			} else if (value instanceof Number) {
+				map.put(entry.getKey(), new JsonPrimitive((Number) value));
+			} else if (value instanceof LocalDate) {
+				LocalDate date = (LocalDate) value;
+				map.put(entry.getKey(), new JsonPrimitive(date.atStartOfDay().atOffset(ZoneOffset.UTC).format(DATE_FORMAT)));
+			} else if (value instanceof URI) {
+				map.put(entry.getKey(), new JsonPrimitive(((URI) value).toASCIIString()));
+			}
+		}
+		return Feature.builder().withId(item.id).withGeometry(Polygon.of(LinearRing.of(points)))
+				.withProperties(map).build();
+	}
+
+	public static void main(String... args) throws Exception {
+		org.openjdk.jmh.Main.main(args);
+	}
+
+}
@@ -0,0 +1,108 @@
+package nikochan2k.citywalker.geojson;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Serializable;
+import java.net.URI;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.filosganga.geogson.gson.GeometryAdapterFactory;
+import com.github.filosganga.geogson.model.Feature;
+import com.github.filosganga.geogson.model.LinearRing;
+import com.github.filosganga.geogson.model.Point;
+import com.github.filosganga.geogson.model.Polygon;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+
+import nikochan2k.citywalker.Item;
+import nikochan2k.citywalker.Item.Coordinates;
+
+class GeoJSONEncoderTest {
+
+	private Item createItem() {
+		Item item = new Item("bldg_8f5a0c1e-0d36-4b6e-9c0a-6f1b2a3c4d5e");
+		item.vertexes.add(new Coordinates(139.7671134, 35.6812362, 0.0));
+		item.vertexes.add(new Coordinates(139.76712, 35.6813, 3.25));
+		item.vertexes.add(new Coordinates(139.7672, 35.68131e0, 1.0E-7));
+		item.vertexes.add(new Coordinates(-0.5, 1.0E21, 123456789.125));
+		item.vertexes.add(new Coordinates(139.7671134, 35.6812362, 0.0));
+		item.props.put("measuredHeight", 12.3);
+		item.props.put("id", "bldg_8f5a0c1e");
+		item.props.put("class", "普通建物");
+		item.props.put("name", "\"A\" & <B> = 'C'\\\t\n\u0001 ");
+		item.props.put("storeysAboveGround", 3);
+		item.props.put("yearOfConstruction", LocalDate.of(1990, 1, 1));
+		item.props.put("demolished", Boolean.FALSE);
+		item.props.put("uri", URI.create("http://example.com/%E5%BB%BA%E7%89%A9?a=b"));
+		return item;
+	}
+
+	private String reference(Item item) {
+		Gson gson = new GsonBuilder().registerTypeAdapterFactory(new GeometryAdapterFactory()).create();
+		List<Point> points = new ArrayList<Point>(item.vertexes.size());
+		for (Coordinates coords : item.vertexes) {
+			points.add(Point.from(coords.x, coords.y, coords.z));
+		}
+		Polygon polygon = Polygon.of(LinearRing.of(points));
+		DateTimeFormatter dtf = DateTimeFormatter.ofPattern("uuuu-MM-dd'T'HH:mm:ssX");
+		Map<String, JsonElement> map = new LinkedHashMap<>();
+		for (Entry<String, Serializable> entry : item.props.entrySet()) {
+			Serializable value = entry.getValue();
+			if (value instanceof String) {
+				map.put(entry.getKey(), new JsonPrimitive((String) value));
+			} else if (value instanceof Number) {
+				map.put(entry.getKey(), new JsonPrimitive((Number) value));
+			} else if (value instanceof Boolean) {
+				map.put(entry.getKey(), new JsonPrimitive((Boolean) value));
+			} else if (value instanceof LocalDate) {
+				LocalDate date = (LocalDate) value;
+				map.put(entry.getKey(), new JsonPrimitive(date.atStartOfDay().atOffset(ZoneOffset.UTC).format(dtf)));
+			} else if (value instanceof URI) {
+				map.put(entry.getKey(), new JsonPrimitive(((URI) value).toASCIIString()));
+			}
+		}
+		Feature feature = Feature.builder().withId(item.id).withGeometry(polygon).withProperties(map).build();
+		return gson.toJson(feature, Feature.class);
+	}
+
+	@Test
+	void testNonFinite() {
+		Item item = new Item("bldg_1");
+		item.addVertex(139.76, 35.68, 0);
+		item.props.put("measuredHeight", Double.NaN);
+		item.props.put("a", Double.POSITIVE_INFINITY);
+		item.props.put("b", Float.NEGATIVE_INFINITY);
+		String json = new GeoJSONEncoder().encode(item).toString();
+		assertTrue(json.endsWith("\"properties\":{\"measuredHeight\":null,\"a\":null,\"b\":null}}"));
+	}
+
+	@Test
+	void testEquivalentToGeogson() {
+		Item item = createItem();
+		GeoJSONEncoder encoder = new GeoJSONEncoder();
+		assertEquals(reference(item), encoder.encode(item).toString());
+		assertEquals(reference(item), encoder.encode(item).toString());
+	}
+
+	@Test
+	void testBoolean() {
+		Item item = new Item("bldg_1");
+		item.addVertex(139.76, 35.68, 0);
+		item.props.put("underground", Boolean.TRUE);
+		item.props.put("demolished", Boolean.FALSE);
+		String json = new GeoJSONEncoder().encode(item).toString();
+		assertTrue(json.endsWith("\"properties\":{\"underground\":true,\"demolished\":false}}"));
+	}
+
+}
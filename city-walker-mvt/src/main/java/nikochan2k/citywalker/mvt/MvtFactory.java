@@ -0,0 +1,72 @@
+package nikochan2k.citywalker.mvt;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Logger;
+
+import nikochan2k.citywalker.Factory;
+import nikochan2k.citywalker.Processor;
+
+public class MvtFactory extends Factory {
+
+	static final String OUTPUT_SRS = "EPSG:4326";
+	private static final Logger LOGGER = Logger.getLogger(MvtFactory.class.getName());
+
+	private int maxZoom = 16;
+	private int minZoom = 10;
+	private TilePyramid pyramid;
+
+	@Override
+	public synchronized Processor createProcessor(File input, String srs) {
+		if (pyramid == null) {
+			File dir = getOutputDir();
+			if (dir == null) {
+				dir = new File(input.getAbsoluteFile().getParentFile(), "tiles");
+			}
+			pyramid = new TilePyramid(dir, minZoom, maxZoom, getCompression());
+		}
+		return new MvtProcessor(pyramid);
+	}
+
+	@Override
+	public synchronized void finish() throws IOException {
+		if (pyramid == null) {
+			return;
+		}
+		try {
+			int tiles = pyramid.write();
+			LOGGER.info(String.format("Wrote %d tile(s)", tiles));
+		} finally {
+			pyramid.close();
+			pyramid = null;
+		}
+	}
+
+	public int getMaxZoom() {
+		return maxZoom;
+	}
+
+	public int getMinZoom() {
+		return minZoom;
+	}
+
+	@Override
+	public String getOutputSRS() {
+		// tiles are always cut in Web Mercator from longitude and latitude
+		return OUTPUT_SRS;
+	}
+
+	@Override
+	public String getTypeName() {
+		return "mvt";
+	}
+
+	public void setMaxZoom(int maxZoom) {
+		this.maxZoom = maxZoom;
+	}
+
+	public void setMinZoom(int minZoom) {
+		this.minZoom = minZoom;
+	}
+
+}
@@ -0,0 +1,32 @@
+package nikochan2k.citywalker.mvt;
+
+import java.io.IOException;
+import java.util.logging.Logger;
+
+import nikochan2k.citywalker.Item;
+import nikochan2k.citywalker.Processor;
+
+public class MvtProcessor extends Processor {
+
+	private static final Logger LOGGER = Logger.getLogger(MvtProcessor.class.getName());
+
+	private final TilePyramid pyramid;
+
+	MvtProcessor(TilePyramid pyramid) {
+		this.pyramid = pyramid;
+	}
+
+	@Override
+	protected void finish() {
+	}
+
+	@Override
+	protected void process(Item item) {
+		try {
+			pyramid.add(item);
+		} catch (IOException e) {
+			LOGGER.warning(e.toString());
+		}
+	}
+
+}
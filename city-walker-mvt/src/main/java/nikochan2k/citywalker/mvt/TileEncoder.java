@@ -0,0 +1,162 @@
+package nikochan2k.citywalker.mvt;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class TileEncoder {
+
+	static class Feature {
+
+		final int[] geometry;
+		final String[] names;
+		final Object[] values;
+
+		Feature(int[] geometry, String[] names, Object[] values) {
+			this.geometry = geometry;
+			this.names = names;
+			this.values = values;
+		}
+
+	}
+
+	private static class ProtoWriter extends ByteArrayOutputStream {
+
+		ProtoWriter() {
+			super(4096);
+		}
+
+		void writeBytes(int field, ProtoWriter message) {
+			writeTag(field, 2);
+			writeVarint(message.size());
+			write(message.buf, 0, message.count);
+		}
+
+		void writeDouble(int field, double value) {
+			writeTag(field, 1);
+			long bits = Double.doubleToLongBits(value);
+			for (int i = 0; i < 8; i++) {
+				write((int) (bits >>> (i * 8)));
+			}
+		}
+
+		void writePacked(int field, int[] values, int length) {
+			int size = 0;
+			for (int i = 0; i < length; i++) {
+				size += varintSize(values[i] & 0xFFFFFFFFL);
+			}
+			writeTag(field, 2);
+			writeVarint(size);
+			for (int i = 0; i < length; i++) {
+				writeVarint(values[i] & 0xFFFFFFFFL);
+			}
+		}
+
+		void writeString(int field, String value) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeTag(field, 2);
+			writeVarint(bytes.length);
+			write(bytes, 0, bytes.length);
+		}
+
+		void writeTag(int field, int wireType) {
+			writeVarint((field << 3) | wireType);
+		}
+
+		void writeVarint(int field, long value) {
+			writeTag(field, 0);
+			writeVarint(value);
+		}
+
+		void writeVarint(long value) {
+			while ((value & ~0x7FL) != 0) {
+				write((int) ((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			write((int) value);
+		}
+
+	}
+
+	static final String LAYER_NAME = "buildings";
+
+	private static int varintSize(long value) {
+		int size = 1;
+		while ((value & ~0x7FL) != 0) {
+			value >>>= 7;
+			size++;
+		}
+		return size;
+	}
+
+	private final ProtoWriter feature = new ProtoWriter();
+	private final ProtoWriter layer = new ProtoWriter();
+	private int[] tags = new int[64];
+	private final ProtoWriter tile = new ProtoWriter();
+	private final ProtoWriter value = new ProtoWriter();
+
+	byte[] encode(List<Feature> features) {
+		Map<String, Integer> keys = new HashMap<>();
+		List<String> keyList = new ArrayList<>();
+		Map<Object, Integer> values = new HashMap<>();
+		List<Object> valueList = new ArrayList<>();
+
+		layer.reset();
+		layer.writeVarint(15, 2);
+		layer.writeString(1, LAYER_NAME);
+		for (Feature f : features) {
+			if (tags.length < f.names.length * 2) {
+				tags = new int[f.names.length * 2];
+			}
+			for (int i = 0; i < f.names.length; i++) {
+				Integer key = keys.get(f.names[i]);
+				if (key == null) {
+					key = keyList.size();
+					keys.put(f.names[i], key);
+					keyList.add(f.names[i]);
+				}
+				Integer val = values.get(f.values[i]);
+				if (val == null) {
+					val = valueList.size();
+					values.put(f.values[i], val);
+					valueList.add(f.values[i]);
+				}
+				tags[i * 2] = key;
+				tags[i * 2 + 1] = val;
+			}
+			feature.reset();
+			if (0 < f.names.length) {
+				feature.writePacked(2, tags, f.names.length * 2);
+			}
+			feature.writeVarint(3, 3);
+			feature.writePacked(4, f.geometry, f.geometry.length);
+			layer.writeBytes(2, feature);
+		}
+		for (String key : keyList) {
+			layer.writeString(3, key);
+		}
+		for (Object v : valueList) {
+			value.reset();
+			if (v instanceof Double) {
+				value.writeDouble(3, (Double) v);
+			} else if (v instanceof Long) {
+				long n = (Long) v;
+				value.writeVarint(6, (n << 1) ^ (n >> 63));
+			} else if (v instanceof Boolean) {
+				value.writeVarint(7, ((Boolean) v) ? 1 : 0);
+			} else {
+				value.writeString(1, v.toString());
+			}
+			layer.writeBytes(4, value);
+		}
+		layer.writeVarint(5, TileGeometry.EXTENT);
+
+		tile.reset();
+		tile.writeBytes(3, layer);
+		return tile.toByteArray();
+	}
+
+}
@@ -0,0 +1,171 @@
+package nikochan2k.citywalker.mvt;
+
+final class TileGeometry {
+
+	static final int EXTENT = 4096;
+	static final int BUFFER = 64;
+
+	private static final int MOVE_TO = 1;
+	private static final int LINE_TO = 2;
+	private static final int CLOSE_PATH = 7;
+
+	private static int command(int id, int count) {
+		return (id & 0x7) | (count << 3);
+	}
+
+	static double toWorldX(double lon) {
+		return (lon + 180.0) / 360.0;
+	}
+
+	static double toWorldY(double lat) {
+		double sin = Math.sin(Math.toRadians(lat));
+		double y = 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+		return Math.min(1.0, Math.max(0.0, y));
+	}
+
+	private static int zigzag(int n) {
+		return (n << 1) ^ (n >> 31);
+	}
+
+	private double[] clipX = new double[64];
+	private double[] clipY = new double[64];
+	private int[] ringX = new int[64];
+	private int[] ringY = new int[64];
+	private double[] xs = new double[64];
+	private double[] ys = new double[64];
+
+	private int clip(int n, int axis, double bound, boolean keepGreater) {
+		if (clipX.length < n * 2) {
+			clipX = new double[n * 2];
+			clipY = new double[n * 2];
+		}
+		int m = 0;
+		for (int i = 0; i < n; i++) {
+			double ax = xs[(i + n - 1) % n];
+			double ay = ys[(i + n - 1) % n];
+			double bx = xs[i];
+			double by = ys[i];
+			double av = axis == 0 ? ax : ay;
+			double bv = axis == 0 ? bx : by;
+			boolean aIn = keepGreater ? bound <= av : av <= bound;
+			boolean bIn = keepGreater ? bound <= bv : bv <= bound;
+			if (aIn != bIn) {
+				double t = (bound - av) / (bv - av);
+				clipX[m] = ax + (bx - ax) * t;
+				clipY[m] = ay + (by - ay) * t;
+				m++;
+			}
+			if (bIn) {
+				clipX[m] = bx;
+				clipY[m] = by;
+				m++;
+			}
+		}
+		double[] tx = xs;
+		double[] ty = ys;
+		xs = clipX;
+		ys = clipY;
+		clipX = tx;
+		clipY = ty;
+		return m;
+	}
+
+	// world coordinates are 0 to 1, returns null when nothing is left in the tile
+	int[] encode(double[] worldX, double[] worldY, int count, int z, int tileX, int tileY) {
+		if (0 < count && worldX[0] == worldX[count - 1] && worldY[0] == worldY[count - 1]) {
+			count--;
+		}
+		if (count < 3) {
+			return null;
+		}
+		if (xs.length < count * 2) {
+			xs = new double[count * 2];
+			ys = new double[count * 2];
+		}
+		double scale = (double) (1 << z) * EXTENT;
+		for (int i = 0; i < count; i++) {
+			xs[i] = worldX[i] * scale - (double) tileX * EXTENT;
+			ys[i] = worldY[i] * scale - (double) tileY * EXTENT;
+		}
+
+		int n = count;
+		n = clip(n, 0, -BUFFER, true);
+		n = clip(n, 0, EXTENT + BUFFER, false);
+		n = clip(n, 1, -BUFFER, true);
+		n = clip(n, 1, EXTENT + BUFFER, false);
+		n = quantize(n);
+		if (n < 3) {
+			return null;
+		}
+
+		long area = 0;
+		for (int i = 0; i < n; i++) {
+			int j = (i + 1) % n;
+			area += (long) ringX[i] * ringY[j] - (long) ringX[j] * ringY[i];
+		}
+		if (-2 < area && area < 2) {
+			return null;
+		}
+
+		int[] commands = new int[3 + (n - 1) * 2 + 2];
+		int c = 0;
+		int px = 0;
+		int py = 0;
+		for (int k = 0; k < n; k++) {
+			int i = 0 < area ? k : (n - k) % n;
+			if (k == 0) {
+				commands[c++] = command(MOVE_TO, 1);
+			} else if (k == 1) {
+				commands[c++] = command(LINE_TO, n - 1);
+			}
+			commands[c++] = zigzag(ringX[i] - px);
+			commands[c++] = zigzag(ringY[i] - py);
+			px = ringX[i];
+			py = ringY[i];
+		}
+		commands[c++] = command(CLOSE_PATH, 1);
+		return commands;
+	}
+
+	private int quantize(int n) {
+		if (ringX.length < n) {
+			ringX = new int[n];
+			ringY = new int[n];
+		}
+		int m = 0;
+		for (int i = 0; i < n; i++) {
+			int x = (int) Math.round(xs[i]);
+			int y = (int) Math.round(ys[i]);
+			if (0 < m && ringX[m - 1] == x && ringY[m - 1] == y) {
+				continue;
+			}
+			ringX[m] = x;
+			ringY[m] = y;
+			m++;
+		}
+		if (1 < m && ringX[0] == ringX[m - 1] && ringY[0] == ringY[m - 1]) {
+			m--;
+		}
+
+		// drop vertexes that became collinear on the grid
+		boolean removed = true;
+		while (removed && 3 <= m) {
+			removed = false;
+			for (int i = 0; i < m && 3 <= m; i++) {
+				int a = (i + m - 1) % m;
+				int b = (i + 1) % m;
+				long cross = (long) (ringX[i] - ringX[a]) * (ringY[b] - ringY[a])
+						- (long) (ringY[i] - ringY[a]) * (ringX[b] - ringX[a]);
+				if (cross == 0) {
+					System.arraycopy(ringX, i + 1, ringX, i, m - i - 1);
+					System.arraycopy(ringY, i + 1, ringY, i, m - i - 1);
+					m--;
+					removed = true;
+					i--;
+				}
+			}
+		}
+		return m;
+	}
+
+}
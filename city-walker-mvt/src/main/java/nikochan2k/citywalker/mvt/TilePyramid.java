@@ -0,0 +1,287 @@
+package nikochan2k.citywalker.mvt;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.logging.Logger;
+
+import nikochan2k.citywalker.Compression;
+import nikochan2k.citywalker.Item;
+import nikochan2k.citywalker.ItemSpool;
+
+class TilePyramid implements Closeable {
+
+	static final String EXTENSION = ".mvt";
+	private static final Logger LOGGER = Logger.getLogger(TilePyramid.class.getName());
+
+	private static final byte STRING = 0;
+	private static final byte DOUBLE = 1;
+	private static final byte LONG = 2;
+	private static final byte BOOLEAN = 3;
+
+	private static byte[] encodeProperties(Item item) throws IOException {
+		ByteArrayOutputStream props = new ByteArrayOutputStream(1024);
+		DataOutputStream propsOut = new DataOutputStream(props);
+		List<Entry<String, Serializable>> entries = new ArrayList<>(item.props.size() + 1);
+		if (item.id != null && !item.props.containsKey("id")) {
+			entries.add(new SimpleEntry<String, Serializable>("id", item.id));
+		}
+		for (Entry<String, Serializable> entry : item.props.entrySet()) {
+			if (entry.getValue() != null) {
+				entries.add(entry);
+			}
+		}
+		propsOut.writeInt(entries.size());
+		for (Entry<String, Serializable> entry : entries) {
+			writeString(propsOut, entry.getKey());
+			Serializable value = entry.getValue();
+			if (value instanceof Double || value instanceof Float) {
+				propsOut.writeByte(DOUBLE);
+				propsOut.writeDouble(((Number) value).doubleValue());
+			} else if (value instanceof Number) {
+				propsOut.writeByte(LONG);
+				propsOut.writeLong(((Number) value).longValue());
+			} else if (value instanceof Boolean) {
+				propsOut.writeByte(BOOLEAN);
+				propsOut.writeBoolean((Boolean) value);
+			} else {
+				propsOut.writeByte(STRING);
+				writeString(propsOut, value.toString());
+			}
+		}
+		propsOut.flush();
+		return props.toByteArray();
+	}
+
+	private static long keyOf(int z, int x, int y) {
+		return ((long) z << 58) | ((long) x << 29) | y;
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		String s = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+				StandardCharsets.UTF_8);
+		buffer.position(buffer.position() + length);
+		return s;
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private ByteBuffer buffer = ByteBuffer.allocate(8192);
+	private FileChannel channel;
+	private final Compression compression;
+	private final File dir;
+	private final ByteBuffer lengthBuffer = ByteBuffer.allocate(4);
+	private final int maxZoom;
+	private final int minZoom;
+	private long position;
+	private DataOutputStream props;
+	private File propsFile;
+	private final TileSorter sorter;
+
+	TilePyramid(File dir, int minZoom, int maxZoom, Compression compression) {
+		this(dir, minZoom, maxZoom, compression, TileSorter.DEFAULT_RUN_SIZE);
+	}
+
+	TilePyramid(File dir, int minZoom, int maxZoom, Compression compression, int runSize) {
+		this.dir = dir;
+		this.minZoom = minZoom;
+		this.maxZoom = maxZoom;
+		this.compression = compression;
+		this.sorter = new TileSorter(runSize);
+	}
+
+	void add(Item item) throws IOException {
+		int count = item.getVertexCount();
+		if (count < 3) {
+			return;
+		}
+		double[] coords = item.getCoordinates();
+		double[] worldX = new double[count];
+		double[] worldY = new double[count];
+		for (int i = 0; i < count; i++) {
+			worldX[i] = TileGeometry.toWorldX(coords[i * 3]);
+			worldY[i] = TileGeometry.toWorldY(coords[i * 3 + 1]);
+		}
+		// world y grows southwards
+		double[] bounds = item.getBounds(new double[4]);
+		double minX = TileGeometry.toWorldX(bounds[0]);
+		double minY = TileGeometry.toWorldY(bounds[3]);
+		double maxX = TileGeometry.toWorldX(bounds[2]);
+		double maxY = TileGeometry.toWorldY(bounds[1]);
+
+		List<Long> keys = new ArrayList<>();
+		List<int[]> commands = new ArrayList<>();
+		TileGeometry geometry = new TileGeometry();
+		double buffer = (double) TileGeometry.BUFFER / TileGeometry.EXTENT;
+		for (int z = minZoom; z <= maxZoom; z++) {
+			int tiles = 1 << z;
+			int x0 = Math.max(0, (int) Math.floor(minX * tiles - buffer));
+			int x1 = Math.min(tiles - 1, (int) Math.floor(maxX * tiles + buffer));
+			int y0 = Math.max(0, (int) Math.floor(minY * tiles - buffer));
+			int y1 = Math.min(tiles - 1, (int) Math.floor(maxY * tiles + buffer));
+			for (int x = x0; x <= x1; x++) {
+				for (int y = y0; y <= y1; y++) {
+					int[] c = geometry.encode(worldX, worldY, count, z, x, y);
+					if (c != null) {
+						keys.add(keyOf(z, x, y));
+						commands.add(c);
+					}
+				}
+			}
+		}
+		if (keys.isEmpty()) {
+			return;
+		}
+		append(encodeProperties(item), keys, commands);
+	}
+
+	private synchronized void append(byte[] encodedProps, List<Long> keys, List<int[]> commands)
+			throws IOException {
+		if (props == null) {
+			if (channel != null) {
+				throw new IllegalStateException("Tiles are already being written");
+			}
+			propsFile = File.createTempFile("citywalker", ".props");
+			props = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(propsFile), 65536));
+		}
+		// properties are stored once and shared by every tile of every zoom
+		long offset = position;
+		props.writeInt(encodedProps.length);
+		props.write(encodedProps);
+		position += 4 + encodedProps.length;
+		for (int i = 0; i < keys.size(); i++) {
+			sorter.add(keys.get(i), offset, commands.get(i));
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		try {
+			if (props != null) {
+				props.close();
+				props = null;
+			}
+			if (channel != null) {
+				channel.close();
+				channel = null;
+			}
+		} catch (IOException e) {
+			LOGGER.warning(e.toString());
+		}
+		sorter.close();
+		ItemSpool.deleteTempFile(propsFile);
+		propsFile = null;
+	}
+
+	private TileEncoder.Feature readFeature(long offset, int[] commands) throws IOException {
+		lengthBuffer.clear();
+		readFully(lengthBuffer, offset);
+		lengthBuffer.flip();
+		int length = lengthBuffer.getInt();
+		if (buffer.capacity() < length) {
+			buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2));
+		}
+		buffer.clear();
+		buffer.limit(length);
+		readFully(buffer, offset + 4);
+		buffer.flip();
+
+		int size = buffer.getInt();
+		String[] names = new String[size];
+		Object[] values = new Object[size];
+		for (int i = 0; i < size; i++) {
+			names[i] = readString(buffer);
+			switch (buffer.get()) {
+			case DOUBLE:
+				values[i] = buffer.getDouble();
+				break;
+			case LONG:
+				values[i] = buffer.getLong();
+				break;
+			case BOOLEAN:
+				values[i] = buffer.get() != 0;
+				break;
+			default:
+				values[i] = readString(buffer);
+				break;
+			}
+		}
+		return new TileEncoder.Feature(commands, names, values);
+	}
+
+	private void readFully(ByteBuffer dst, long offset) throws IOException {
+		while (dst.hasRemaining()) {
+			int n = channel.read(dst, offset);
+			if (n < 0) {
+				throw new EOFException(propsFile.getAbsolutePath());
+			}
+			offset += n;
+		}
+	}
+
+	synchronized int write() throws IOException {
+		if (props == null) {
+			return 0;
+		}
+		props.close();
+		props = null;
+		channel = FileChannel.open(propsFile.toPath(), StandardOpenOption.READ);
+
+		// records arrive sorted by z/x/y, so only one tile is held in memory at a time
+		TileEncoder encoder = new TileEncoder();
+		List<TileEncoder.Feature> features = new ArrayList<>();
+		long[] current = { -1 };
+		int[] written = { 0 };
+		sorter.sort((key, offset, commands) -> {
+			if (key != current[0]) {
+				if (!features.isEmpty()) {
+					writeTile(encoder, current[0], features);
+					features.clear();
+					written[0]++;
+				}
+				current[0] = key;
+			}
+			features.add(readFeature(offset, commands));
+		});
+		if (!features.isEmpty()) {
+			writeTile(encoder, current[0], features);
+			written[0]++;
+		}
+		return written[0];
+	}
+
+	private void writeTile(TileEncoder encoder, long key, List<TileEncoder.Feature> features) throws IOException {
+		int z = (int) (key >>> 58);
+		int x = (int) ((key >>> 29) & 0x1FFFFFFF);
+		int y = (int) (key & 0x1FFFFFFF);
+		File tileDir = new File(dir, z + File.separator + x);
+		if (!tileDir.isDirectory() && !tileDir.mkdirs()) {
+			throw new IOException("Could not create " + tileDir.getAbsolutePath());
+		}
+		File file = new File(tileDir, y + EXTENSION + compression.getExtension());
+		try (OutputStream os = compression.open(file)) {
+			os.write(encoder.encode(features));
+		}
+	}
+
+}
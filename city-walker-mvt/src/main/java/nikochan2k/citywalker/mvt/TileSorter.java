@@ -0,0 +1,183 @@
+package nikochan2k.citywalker.mvt;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import nikochan2k.citywalker.ItemSpool;
+
+class TileSorter implements Closeable {
+
+	interface Visitor {
+		void visit(long key, long offset, int[] commands) throws IOException;
+	}
+
+	private static class Run implements Closeable {
+
+		private final DataInputStream in;
+		private final int index;
+		int[] commands;
+		long key;
+		long offset;
+
+		Run(File file, int index) throws IOException {
+			this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536));
+			this.index = index;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+
+		boolean next() throws IOException {
+			try {
+				key = in.readLong();
+			} catch (EOFException e) {
+				return false;
+			}
+			offset = in.readLong();
+			commands = new int[in.readInt()];
+			for (int i = 0; i < commands.length; i++) {
+				commands[i] = in.readInt();
+			}
+			return true;
+		}
+
+	}
+
+	static final int DEFAULT_RUN_SIZE = 1 << 16;
+	// commands held in memory before a run is spilled, 16 MiB
+	private static final int MAX_BUFFERED_COMMANDS = 1 << 22;
+
+	private static int compare(Run a, Run b) {
+		int result = Long.compare(a.key, b.key);
+		if (result != 0) {
+			return result;
+		}
+		return Integer.compare(a.index, b.index);
+	}
+
+	private int buffered;
+	private final int[][] commands;
+	private final Integer[] order;
+	private final long[] keys;
+	private final long[] offsets;
+	private final List<File> runs = new ArrayList<>();
+	private int size;
+
+	TileSorter() {
+		this(DEFAULT_RUN_SIZE);
+	}
+
+	TileSorter(int runSize) {
+		this.commands = new int[runSize][];
+		this.order = new Integer[runSize];
+		this.keys = new long[runSize];
+		this.offsets = new long[runSize];
+	}
+
+	void add(long key, long offset, int[] commands) throws IOException {
+		if (size == keys.length || MAX_BUFFERED_COMMANDS <= buffered) {
+			spill();
+		}
+		keys[size] = key;
+		offsets[size] = offset;
+		this.commands[size] = commands;
+		buffered += commands.length;
+		size++;
+	}
+
+	@Override
+	public void close() {
+		Arrays.fill(commands, null);
+		size = 0;
+		for (File run : runs) {
+			ItemSpool.deleteTempFile(run);
+		}
+		runs.clear();
+	}
+
+	private void merge(Visitor visitor) throws IOException {
+		List<Run> opened = new ArrayList<>(runs.size());
+		try {
+			PriorityQueue<Run> queue = new PriorityQueue<>(runs.size(), TileSorter::compare);
+			for (File file : runs) {
+				Run run = new Run(file, opened.size());
+				opened.add(run);
+				if (run.next()) {
+					queue.add(run);
+				}
+			}
+			while (!queue.isEmpty()) {
+				Run run = queue.poll();
+				visitor.visit(run.key, run.offset, run.commands);
+				if (run.next()) {
+					queue.add(run);
+				}
+			}
+		} finally {
+			for (Run run : opened) {
+				run.close();
+			}
+		}
+	}
+
+	void sort(Visitor visitor) throws IOException {
+		if (runs.isEmpty()) {
+			sortBuffer();
+			for (int i = 0; i < size; i++) {
+				int index = order[i];
+				visitor.visit(keys[index], offsets[index], commands[index]);
+			}
+			Arrays.fill(commands, 0, size, null);
+			size = 0;
+			buffered = 0;
+			return;
+		}
+		spill();
+		merge(visitor);
+	}
+
+	private void sortBuffer() {
+		for (int i = 0; i < size; i++) {
+			order[i] = i;
+		}
+		// stable, so features keep their insertion order within a tile
+		Arrays.sort(order, 0, size, (a, b) -> Long.compare(keys[a], keys[b]));
+	}
+
+	private void spill() throws IOException {
+		sortBuffer();
+		File file = File.createTempFile("citywalker", ".run");
+		runs.add(file);
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(file), 65536))) {
+			for (int i = 0; i < size; i++) {
+				int index = order[i];
+				out.writeLong(keys[index]);
+				out.writeLong(offsets[index]);
+				int[] c = commands[index];
+				out.writeInt(c.length);
+				for (int v : c) {
+					out.writeInt(v);
+				}
+			}
+		}
+		Arrays.fill(commands, 0, size, null);
+		size = 0;
+		buffered = 0;
+	}
+
+}
@@ -0,0 +1,88 @@
+package nikochan2k.citywalker.mvt;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nikochan2k.citywalker.Compression;
+import nikochan2k.citywalker.Item;
+import nikochan2k.citywalker.ItemFixture;
+
+class TilePyramidTest {
+
+	@TempDir
+	File dir;
+
+	@Test
+	void testClip() {
+		// the whole world at z1 is clipped to the top left tile plus its buffer
+		double[] x = { 0, 1, 1, 0 };
+		double[] y = { 0, 0, 1, 1 };
+		int[] commands = new TileGeometry().encode(x, y, 4, 1, 0, 0);
+		int edge = TileGeometry.EXTENT + TileGeometry.BUFFER;
+		assertArrayEquals(new int[] { 9, 0, edge * 2, 26, 0, edge * 2 - 1, edge * 2, 0, 0, edge * 2, 15 }, commands);
+
+		// counter-clockwise input is reversed so the exterior ring has a positive area
+		double[] rx = { 0.1, 0.1, 0.2, 0.2 };
+		double[] ry = { 0.1, 0.2, 0.2, 0.1 };
+		int[] reversed = new TileGeometry().encode(rx, ry, 4, 0, 0, 0);
+		double[] cx = { 0.1, 0.2, 0.2, 0.1 };
+		double[] cy = { 0.1, 0.1, 0.2, 0.2 };
+		assertArrayEquals(new TileGeometry().encode(cx, cy, 4, 0, 0, 0), reversed);
+
+		// too small to survive quantization
+		double[] tx = { 0.1, 0.1000001, 0.1000001 };
+		double[] ty = { 0.1, 0.1, 0.1000001 };
+		assertNull(new TileGeometry().encode(tx, ty, 3, 0, 0, 0));
+	}
+
+	@Test
+	void testSpill() throws IOException {
+		// tiny runs force the external merge, the tiles must not change
+		File memory = new File(dir, "memory");
+		File spilled = new File(dir, "spilled");
+		TilePyramid a = new TilePyramid(memory, 12, 14, Compression.NONE);
+		TilePyramid b = new TilePyramid(spilled, 12, 14, Compression.NONE, 3);
+		for (int i = 0; i < 20; i++) {
+			Item item = ItemFixture.building(i, 139.76 + (i % 5) * 0.001, 35.68 + (i / 5) * 0.001, 0.0005, 0);
+			a.add(item);
+			b.add(item);
+		}
+		int written = a.write();
+		a.close();
+		assertEquals(written, b.write());
+		b.close();
+
+		int z = 14;
+		int x = (int) Math.floor(TileGeometry.toWorldX(139.76) * (1 << z));
+		int y = (int) Math.floor(TileGeometry.toWorldY(35.68) * (1 << z));
+		String path = z + File.separator + x + File.separator + y + TilePyramid.EXTENSION;
+		assertArrayEquals(Files.readAllBytes(new File(memory, path).toPath()),
+				Files.readAllBytes(new File(spilled, path).toPath()));
+	}
+
+	@Test
+	void testWrite() throws IOException {
+		TilePyramid pyramid = new TilePyramid(dir, 12, 14, Compression.NONE);
+		for (int i = 0; i < 10; i++) {
+			pyramid.add(ItemFixture.building(i, 139.76 + i * 0.001, 35.68, 0.0005, 0));
+		}
+		int written = pyramid.write();
+		pyramid.close();
+		assertTrue(3 <= written);
+
+		int z = 14;
+		int x = (int) Math.floor(TileGeometry.toWorldX(139.76) * (1 << z));
+		int y = (int) Math.floor(TileGeometry.toWorldY(35.68) * (1 << z));
+		File tile = new File(dir, z + File.separator + x + File.separator + y + TilePyramid.EXTENSION);
+		assertTrue(tile.isFile());
+		byte[] bytes = Files.readAllBytes(tile.toPath());
+		assertEquals(0x1A, bytes[0]);
+	}
+
+}
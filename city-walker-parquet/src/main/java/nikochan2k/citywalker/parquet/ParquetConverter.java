@@ -0,0 +1,201 @@
+package nikochan2k.citywalker.parquet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.logging.Logger;
+
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.LocalOutputFile;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Types;
+import org.apache.parquet.schema.Types.MessageTypeBuilder;
+
+import nikochan2k.citywalker.Compression;
+import nikochan2k.citywalker.Converter;
+import nikochan2k.citywalker.Item;
+import nikochan2k.citywalker.ItemSpool;
+
+public class ParquetConverter extends Converter {
+
+	static final String EXTENSION = ".parquet";
+	static final String GEOMETRY = "geometry";
+	static final String ID = "id";
+	private static final Logger LOGGER = Logger.getLogger(ParquetConverter.class.getName());
+
+	static MessageType createSchema(Map<String, ItemSpool.Type> columns) {
+		MessageTypeBuilder builder = Types.buildMessage();
+		builder.optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named(ID);
+		builder.required(PrimitiveTypeName.BINARY).named(GEOMETRY);
+		for (Entry<String, ItemSpool.Type> entry : columns.entrySet()) {
+			String name = entry.getKey();
+			if (isReserved(name)) {
+				continue;
+			}
+			switch (entry.getValue()) {
+			case BOOLEAN:
+				builder.optional(PrimitiveTypeName.BOOLEAN).named(name);
+				break;
+			case INTEGER:
+				builder.optional(PrimitiveTypeName.INT32).named(name);
+				break;
+			case LONG:
+				builder.optional(PrimitiveTypeName.INT64).named(name);
+				break;
+			case DOUBLE:
+				builder.optional(PrimitiveTypeName.DOUBLE).named(name);
+				break;
+			case DATE:
+				builder.optional(PrimitiveTypeName.INT32).as(LogicalTypeAnnotation.dateType()).named(name);
+				break;
+			default:
+				builder.optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named(name);
+				break;
+			}
+		}
+		return builder.named("building");
+	}
+
+	private static boolean isReserved(String name) {
+		return ID.equals(name) || GEOMETRY.equals(name);
+	}
+
+	private final double[] bbox = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+			Double.NEGATIVE_INFINITY };
+	private final CompressionCodecName codec;
+	private final long rowGroupSize;
+	private ItemSpool spool;
+	private final WKBEncoder wkb = new WKBEncoder();
+
+	protected ParquetConverter(File input, File outputDir, String srs) {
+		this(input, outputDir, srs, Compression.NONE, ParquetWriter.DEFAULT_BLOCK_SIZE);
+	}
+
+	protected ParquetConverter(File input, File outputDir, String srs, Compression compression, long rowGroupSize) {
+		// Parquet compresses its pages, so the file name never gets a compression suffix
+		super(input, outputDir);
+		this.codec = "gzip".equals(compression.getFormat()) ? CompressionCodecName.GZIP : CompressionCodecName.SNAPPY;
+		this.rowGroupSize = rowGroupSize;
+		try {
+			spool = new ItemSpool();
+		} catch (IOException e) {
+			LOGGER.warning(e.toString());
+		}
+	}
+
+	private Group createGroup(SimpleGroupFactory groups, Map<String, ItemSpool.Type> columns, Item item) {
+		Group group = groups.newGroup();
+		if (item.id != null) {
+			group.append(ID, item.id);
+		}
+		group.append(GEOMETRY, Binary.fromConstantByteArray(wkb.encode(item)));
+		for (Entry<String, Serializable> entry : item.props.entrySet()) {
+			String name = entry.getKey();
+			Serializable value = entry.getValue();
+			ItemSpool.Type type = columns.get(name);
+			if (value == null || type == null || isReserved(name)) {
+				continue;
+			}
+			switch (type) {
+			case BOOLEAN:
+				group.append(name, (Boolean) value);
+				break;
+			case INTEGER:
+				group.append(name, ((Number) value).intValue());
+				break;
+			case LONG:
+				group.append(name, ((Number) value).longValue());
+				break;
+			case DOUBLE:
+				group.append(name, ((Number) value).doubleValue());
+				break;
+			case DATE:
+				group.append(name, (int) ((LocalDate) value).toEpochDay());
+				break;
+			default:
+				group.append(name, value.toString());
+				break;
+			}
+		}
+		return group;
+	}
+
+	String createGeoMetadata() {
+		StringBuilder sb = new StringBuilder(256);
+		sb.append("{\"version\":\"1.0.0\",\"primary_column\":\"").append(GEOMETRY).append("\",\"columns\":{\"");
+		// no crs, which GeoParquet reads as longitude and latitude, the only output ParquetFactory accepts
+		sb.append(GEOMETRY).append("\":{\"encoding\":\"WKB\",\"geometry_types\":[\"Polygon Z\"]");
+		if (bbox[0] <= bbox[2]) {
+			sb.append(",\"bbox\":[").append(bbox[0]).append(',').append(bbox[1]).append(',').append(bbox[2])
+					.append(',').append(bbox[3]).append(']');
+		}
+		sb.append("}}}");
+		return sb.toString();
+	}
+
+	@Override
+	public void finish() {
+		if (spool == null) {
+			return;
+		}
+		try {
+			write();
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warning(e.toString());
+		} finally {
+			spool.close();
+			spool = null;
+		}
+	}
+
+	@Override
+	protected String getExtension() {
+		return EXTENSION;
+	}
+
+	@Override
+	public void process(Item item) {
+		if (spool == null) {
+			return;
+		}
+		item.expandBounds(bbox);
+		try {
+			spool.append(item);
+		} catch (IOException e) {
+			LOGGER.warning(e.toString());
+			spool.close();
+			spool = null;
+		}
+	}
+
+	private void write() throws IOException {
+		Map<String, ItemSpool.Type> columns = spool.getSchema();
+		MessageType schema = createSchema(columns);
+		SimpleGroupFactory groups = new SimpleGroupFactory(schema);
+		try (ParquetWriter<Group> writer = ExampleParquetWriter.builder(new LocalOutputFile(output.toPath()))
+				.withType(schema)
+				.withExtraMetaData(Collections.singletonMap("geo", createGeoMetadata()))
+				.withCompressionCodec(codec)
+				.withRowGroupSize(rowGroupSize)
+				.withDictionaryEncoding(true)
+				.withDictionaryEncoding(ID, false)
+				.withDictionaryEncoding(GEOMETRY, false)
+				.withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+				.build()) {
+			spool.scan((position, item) -> writer.write(createGroup(groups, columns, item)));
+		}
+	}
+
+}
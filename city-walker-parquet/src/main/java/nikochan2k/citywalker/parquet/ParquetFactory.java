@@ -0,0 +1,49 @@
+package nikochan2k.citywalker.parquet;
+
+import java.io.File;
+
+import org.apache.parquet.hadoop.ParquetWriter;
+
+import nikochan2k.citywalker.Converter;
+import nikochan2k.citywalker.Factory;
+import nikochan2k.citywalker.Processor;
+
+public class ParquetFactory extends Factory {
+
+	static final String OUTPUT_SRS = "EPSG:4326";
+
+	private long rowGroupSize = ParquetWriter.DEFAULT_BLOCK_SIZE;
+
+	@Override
+	public File getOutput(File input) {
+		return Converter.getOutput(input, getOutputDir(), ParquetConverter.EXTENSION);
+	}
+
+	public long getRowGroupSize() {
+		return rowGroupSize;
+	}
+
+	@Override
+	public String getTypeName() {
+		return "parquet";
+	}
+
+	@Override
+	public Processor createProcessor(File input, String srs) {
+		return new ParquetConverter(input, this.getOutputDir(), srs, this.getCompression(), rowGroupSize);
+	}
+
+	@Override
+	public void setOutputSRS(String outputSRS) {
+		// the geo metadata carries no PROJJSON crs, so anything but longitude and latitude would be mislabeled
+		if (outputSRS != null && !OUTPUT_SRS.equalsIgnoreCase(outputSRS.trim())) {
+			throw new IllegalArgumentException("GeoParquet output only supports " + OUTPUT_SRS + ": " + outputSRS);
+		}
+		super.setOutputSRS(outputSRS);
+	}
+
+	public void setRowGroupSize(long rowGroupSize) {
+		this.rowGroupSize = rowGroupSize;
+	}
+
+}
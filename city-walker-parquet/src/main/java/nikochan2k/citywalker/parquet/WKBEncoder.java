@@ -0,0 +1,36 @@
+package nikochan2k.citywalker.parquet;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import nikochan2k.citywalker.Item;
+
+class WKBEncoder {
+
+	// ISO WKB Polygon Z
+	static final int POLYGON_Z = 1003;
+
+	private ByteBuffer buffer = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+
+	byte[] encode(Item item) {
+		int vertexCount = item.getVertexCount();
+		int length = 1 + 4 + 4 + 4 + vertexCount * 3 * 8;
+		if (buffer.capacity() < length) {
+			buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2)).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		buffer.clear();
+		buffer.put((byte) 1);
+		buffer.putInt(POLYGON_Z);
+		buffer.putInt(1);
+		buffer.putInt(vertexCount);
+		double[] coords = item.getCoordinates();
+		for (int i = 0, end = vertexCount * 3; i < end; i++) {
+			buffer.putDouble(coords[i]);
+		}
+		byte[] wkb = new byte[length];
+		buffer.flip();
+		buffer.get(wkb);
+		return wkb;
+	}
+
+}
@@ -0,0 +1,145 @@
+package nikochan2k.citywalker.parquet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.column.Encoding;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.RecordReader;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nikochan2k.citywalker.Compression;
+import nikochan2k.citywalker.Item;
+import nikochan2k.citywalker.ItemFixture;
+import nikochan2k.citywalker.ItemSpool;
+
+class ParquetConverterTest {
+
+	private static final int COUNT = 100;
+
+	private static Item createItem(int i) {
+		return ItemFixture.building(i, 139, 35, 0.001, 10);
+	}
+
+	private static boolean isDictionaryEncoded(ColumnChunkMetaData column) {
+		for (Encoding encoding : column.getEncodings()) {
+			if (encoding.usesDictionary()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@TempDir
+	File dir;
+
+	@Test
+	void testOutputSRS() {
+		ParquetFactory factory = new ParquetFactory();
+		factory.setOutputSRS(null);
+		factory.setOutputSRS("epsg:4326");
+		assertEquals("epsg:4326", factory.getOutputSRS());
+		assertThrows(IllegalArgumentException.class, () -> factory.setOutputSRS("EPSG:6697"));
+		assertThrows(IllegalArgumentException.class, () -> factory.setOutputSRS("+proj=longlat +ellps=GRS80"));
+	}
+
+	@Test
+	void testSchema() {
+		Map<String, ItemSpool.Type> columns = new LinkedHashMap<>();
+		for (Map.Entry<String, Serializable> entry : createItem(0).props.entrySet()) {
+			columns.put(entry.getKey(), ItemSpool.Type.of(entry.getValue()));
+		}
+		MessageType schema = ParquetConverter.createSchema(columns);
+		assertEquals(7, schema.getFieldCount());
+		assertEquals(PrimitiveTypeName.BINARY, schema.getType(ParquetConverter.GEOMETRY).asPrimitiveType()
+				.getPrimitiveTypeName());
+		assertEquals(PrimitiveTypeName.DOUBLE, schema.getType("measuredHeight").asPrimitiveType()
+				.getPrimitiveTypeName());
+		assertEquals(PrimitiveTypeName.INT32, schema.getType("storeysAboveGround").asPrimitiveType()
+				.getPrimitiveTypeName());
+		assertEquals(LogicalTypeAnnotation.dateType(), schema.getType("yearOfConstruction")
+				.getLogicalTypeAnnotation());
+		assertEquals(LogicalTypeAnnotation.stringType(), schema.getType("url").getLogicalTypeAnnotation());
+	}
+
+	@Test
+	void testWKB() {
+		byte[] wkb = new WKBEncoder().encode(createItem(0));
+		ByteBuffer bb = ByteBuffer.wrap(wkb).order(ByteOrder.LITTLE_ENDIAN);
+		assertEquals(1, bb.get());
+		assertEquals(WKBEncoder.POLYGON_Z, bb.getInt());
+		assertEquals(1, bb.getInt());
+		assertEquals(5, bb.getInt());
+		assertEquals(139.0, bb.getDouble());
+		assertEquals(35.0, bb.getDouble());
+		assertEquals(10.0, bb.getDouble());
+		assertEquals(1 + 4 + 4 + 4 + 5 * 3 * 8, wkb.length);
+	}
+
+	@Test
+	void testWrite() throws IOException {
+		ParquetConverter converter = new ParquetConverter(new File(dir, "test.gml"), dir, "EPSG:4326",
+				Compression.NONE, 1024 * 1024);
+		for (int i = 0; i < COUNT; i++) {
+			converter.process(createItem(i));
+		}
+		assertFalse(converter.createGeoMetadata().contains("\"crs\""));
+		converter.finish();
+
+		File output = new File(dir, "test" + ParquetConverter.EXTENSION);
+		try (ParquetFileReader reader = ParquetFileReader
+				.open(HadoopInputFile.fromPath(new Path(output.toURI()), new Configuration()))) {
+			assertEquals(COUNT, reader.getRecordCount());
+			ParquetMetadata footer = reader.getFooter();
+			assertTrue(footer.getFileMetaData().getKeyValueMetaData().get("geo").contains("\"primary_column\""));
+
+			Map<String, ColumnChunkMetaData> columns = new HashMap<>();
+			for (ColumnChunkMetaData column : footer.getBlocks().get(0).getColumns()) {
+				columns.put(column.getPath().toDotString(), column);
+			}
+			assertTrue(isDictionaryEncoded(columns.get("class")));
+			assertFalse(isDictionaryEncoded(columns.get(ParquetConverter.ID)));
+			assertFalse(isDictionaryEncoded(columns.get(ParquetConverter.GEOMETRY)));
+
+			MessageType schema = footer.getFileMetaData().getSchema();
+			PageReadStore pages = reader.readNextRowGroup();
+			RecordReader<Group> records = new ColumnIOFactory().getColumnIO(schema).getRecordReader(pages,
+					new GroupRecordConverter(schema));
+			for (int i = 0; i < COUNT; i++) {
+				Item item = createItem(i);
+				Group group = records.read();
+				assertEquals(item.id, group.getString(ParquetConverter.ID, 0));
+				assertArrayEquals(new WKBEncoder().encode(item),
+						group.getBinary(ParquetConverter.GEOMETRY, 0).getBytes());
+				assertEquals(item.props.get("class"), group.getString("class", 0));
+				assertEquals(12.5 + i, group.getDouble("measuredHeight", 0));
+				assertEquals(i % 5, group.getInteger("storeysAboveGround", 0));
+				assertEquals(LocalDate.of(1950 + i, 1, 1).toEpochDay(), group.getInteger("yearOfConstruction", 0));
+				assertEquals("https://example.com/" + i, group.getString("url", 0));
+			}
+		}
+	}
+
+}